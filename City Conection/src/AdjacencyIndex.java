@@ -0,0 +1,89 @@
+// Sorted views of a graph for lookups by vertex pair and by incoming edge:
+//
+//   in      the reverse graph; row v lists the sources of the edges into v
+//   sorted  the graph with every row ordered by target, so an edge lookup is a
+//           binary search instead of a scan of the row
+//
+// Both come from CsrGraph.reverse(), a stable counting sort that fills each row
+// in ascending source order; reversing the reverse therefore sorts the rows by
+// target in O(V + E), and parallel edges keep their insertion order. Immutable,
+// so it may be shared between threads.
+public class AdjacencyIndex {
+    private final CsrGraph graph;
+    private final CsrGraph in;
+    private final CsrGraph sorted;
+
+    private AdjacencyIndex(CsrGraph graph, CsrGraph in, CsrGraph sorted) {
+        this.graph = graph;
+        this.in = in;
+        this.sorted = sorted;
+    }
+
+    public static AdjacencyIndex build(CsrGraph graph) {
+        CsrGraph in = graph.reverse();
+        return new AdjacencyIndex(graph, in, in.reverse());
+    }
+
+    // The graph this index was built from
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // Edges into v are the slots in().begin(v) .. in().end(v) - 1, by ascending source
+    public CsrGraph in() {
+        return in;
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return firstEdge(from, to) != -1;
+    }
+
+    // Weight of the first edge from -> to in insertion order, or -1 if there is none
+    public int edgeWeight(int from, int to) {
+        int e = firstEdge(from, to);
+        return e != -1 ? sorted.weight(e) : -1;
+    }
+
+    // Sources of the edges into v, one per edge, in ascending order
+    public int[] predecessors(int v) {
+        int[] sources = new int[in.degree(v)];
+        for (int e = in.begin(v), i = 0; i < sources.length; e++, i++) {
+            sources[i] = in.target(e);
+        }
+        return sources;
+    }
+
+    // True if every edge u -> v has at least one edge v -> u. Row v of sorted and
+    // row v of in are both ascending, so each pair is checked in one merge pass.
+    public boolean isSymmetric() {
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            int j = in.begin(v);
+            int inEnd = in.end(v);
+            for (int e = sorted.begin(v), end = sorted.end(v); e < end; e++) {
+                int target = sorted.target(e);
+                while (j < inEnd && in.target(j) < target) {
+                    j++;
+                }
+                if (j == inEnd || in.target(j) != target) {
+                    return false; // No edge target -> v
+                }
+            }
+        }
+        return true;
+    }
+
+    // Slot in sorted of the first edge from -> to, or -1
+    private int firstEdge(int from, int to) {
+        int low = sorted.begin(from);
+        int high = sorted.end(from);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.target(mid) < to) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < sorted.end(from) && sorted.target(low) == to ? low : -1;
+    }
+}
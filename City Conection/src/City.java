@@ -1,447 +1,860 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class City {
-
-    private final Map<String, Integer> cityIndices;
-    private final ArrayList<ArrayList<Edge>> adjacencyList;
+    private static final long PARALLEL_LOAD_THRESHOLD = 32L << 20;
+    private static final long DEFAULT_MAX_SIMPLE_PATHS = 100_000_000L;
+    private static final int MAX_SCANNED_DEGREE = 64; // Rows up to this long are scanned rather than indexed
+
+    private final StringIntMap cityIndices;
+    private String[] cityNames; // Reverse index: vertex id -> city name
+    private int cityCount;
+    private CsrGraph graph; // Frozen after each load
+    private PointToPointRouter router;
+    private AdjacencyIndex adjacency; // Rebuilt when the graph changes
+    private long staleScans; // Edges scanned by hasEdge since adjacency went stale
+    private RoutingMode routingMode = RoutingMode.DIJKSTRA;
+    private ContractionHierarchy contractionHierarchy;
+    private PathCounter pathCounter;
+    private volatile GraphQueries queries; // Over a FrozenGraph of the current graph version
+    private boolean namesChanged; // Since queries was created
+    private GraphQueries traversals; // Over the live graph, for this City's own queries
+    private DynamicGraph dynamicGraph; // Editable rows once the graph has been updated, until the next load
+    private boolean deferPublish; // While a delta file is applied, so it becomes visible at once
+    private ComponentIndex componentIndex; // Built on the first query, then kept up to date by loads
+    private DegreeIndex degreeIndex; // Likewise
+    private QueryCache queryCache; // Optional, see enableQueryCache
+    private MetricsRegistry metrics = MetricsRegistry.NONE;
+    private int maxSimplePathLength = Integer.MAX_VALUE;
+    private long maxSimplePaths = DEFAULT_MAX_SIMPLE_PATHS;
 
     public City() {
-        cityIndices = new Map<>();
-        adjacencyList = new ArrayList<>();
-    }
-
-    // Hashing method
-    private int hash(String cityName) {
-        return cityName.length() % cityIndices.size();
+        cityIndices = new StringIntMap();
+        cityNames = new String[16];
+        graph = CsrGraph.empty();
     }
 
     // Method to search for a city in the hash table
     private int searchCity(String cityName) {
-        Integer hashValue = cityIndices.get(cityName);
-        return hashValue != null ? hashValue : -1;
+        return cityIndices.getOrDefault(cityName, -1);
     }
 
-    // Method to read graph data from the file and construct the adjacency list
+    // Method to read graph data from the file and construct the CSR graph.
+    // Large files are parsed on all available cores.
     public void readGraphFromFile(String filename) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(" -> ");
-
-                if (parts.length == 2) {
-                    String vertexName = parts[0];
-                    String[] edges = parts[1].split(", ");
-                    int fromIndex = getOrCreateIndex(vertexName);
-
-                    for (String edge : edges) {
-                        String[] edgeParts = edge.split(": ");
-                        String toVertex = edgeParts[0];
-                        int toIndex = getOrCreateIndex(toVertex);
-                        int weight = Integer.parseInt(edgeParts[1]);
-
-                        adjacencyList.get(fromIndex).add(new Edge(fromIndex, toIndex, weight));
-                    }
-                } else {
-                    // Handle invalid line format
-                    System.out.println("Invalid line format: " + line);
-                }
+        long size = new File(filename).length();
+        int threads = size >= PARALLEL_LOAD_THRESHOLD ? Runtime.getRuntime().availableProcessors() : 1;
+        readGraphFromFile(filename, threads);
+    }
+
+    // Same as readGraphFromFile(filename), parsing on the given number of threads
+    public synchronized void readGraphFromFile(String filename, int threads) {
+        long startNanos = System.nanoTime();
+        GraphBuilder builder = new GraphBuilder(graph.edgeCount());
+        graph.appendTo(builder);
+        int oldEdgeCount = builder.edgeCount();
+
+        if (threads > 1) {
+            try {
+                ParallelGraphLoader.load(filename, threads, builder, this::getOrCreateIndex,
+                        (line, lineNumber) -> System.out.println("Invalid line format at line " + lineNumber + ": " + line));
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+            freeze(builder);
+            metrics.recordLoad(builder.edgeCount() - oldEdgeCount, new File(filename).length(), System.nanoTime() - startNanos);
+            return;
+        }
+
+        GraphParser parser = new GraphParser(new GraphParser.Sink() {
+            @Override
+            public int vertex(byte[] buffer, int offset, int length) {
+                return resolveCity(buffer, offset, length);
+            }
+
+            @Override
+            public void edge(int from, int to, int weight) {
+                builder.addEdge(from, to, weight);
+            }
+
+            @Override
+            public void invalidLine(int lineNumber, byte[] buffer, int offset, int length) {
+                // Handle invalid line format
+                System.out.println("Invalid line format at line " + lineNumber + ": "
+                        + new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+        });
+
+        try {
+            parser.parse(filename);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        freeze(builder);
+        metrics.recordLoad(builder.edgeCount() - oldEdgeCount, new File(filename).length(), System.nanoTime() - startNanos);
     }
 
-    // Helper method to get or create index for a city
-    private int getOrCreateIndex(String cityName) {
-        Integer index = cityIndices.get(cityName);
+    // Saves the loaded graph as a binary snapshot that fromSnapshot opens without parsing
+    public void writeSnapshot(String filename) throws IOException {
+        GraphSnapshot.write(filename, cityNames, graph);
+    }
 
-        if (index == null) {
-            index = adjacencyList.size();
-            adjacencyList.add(new ArrayList<>());
-            cityIndices.put(cityName, index);
+    // Creates a City from a snapshot written by writeSnapshot. The graph is read from the
+    // mapped file, so only the names are loaded now; the checksum is not checked.
+    public static City fromSnapshot(String filename) throws IOException {
+        return fromSnapshot(filename, false);
+    }
+
+    // Same as fromSnapshot(filename), first reading the whole file to check its checksum
+    public static City fromSnapshot(String filename, boolean verifyChecksum) throws IOException {
+        GraphSnapshot snapshot = GraphSnapshot.open(filename);
+        if (verifyChecksum) {
+            snapshot.verify();
+        }
+        String[] names = snapshot.names();
+
+        City city = new City();
+        city.cityIndices.ensureCapacity(names.length);
+        for (String name : names) {
+            if (name == null) {
+                city.addRemovedVertex(); // Written for a city removed by an update
+            } else {
+                city.getOrCreateIndex(name);
+            }
         }
+        city.graph = snapshot.graph();
+        return city;
+    }
 
-        return index;
+    private void freeze(GraphBuilder builder) {
+        int oldEdgeCount = graph.edgeCount(); // The builder holds the old edges first, then the loaded ones
+        builder.ensureVertexCount(cityCount);
+        graph = builder.build();
+        dynamicGraph = null;
+        graphChanged();
+        for (int i = oldEdgeCount; i < builder.edgeCount(); i++) {
+            edgeAdded(builder.source(i), builder.target(i));
+        }
     }
 
+    // Keeps the indexes that follow the graph up to date with a new edge
+    private void edgeAdded(int from, int to) {
+        if (componentIndex != null) {
+            componentIndex.addEdge(from, to);
+        }
+        if (degreeIndex != null) {
+            degreeIndex.addEdge(from, to);
+        }
+    }
 
-    // Returns true if there is a path between vertex v1 and vertex v2
-    public boolean isThereAPath(String v1, String v2) {
-        int start = searchCity(v1);
-        int end = searchCity(v2);
+    // Drops or advances everything derived from the previous graph version
+    private void graphChanged() {
+        if (componentIndex != null) {
+            componentIndex.extend(graph);
+        }
+        if (degreeIndex != null) {
+            degreeIndex.extend(graph.vertexCount());
+        }
+        contractionHierarchy = null; // Built for the previous graph version
+        if (routingMode == RoutingMode.CONTRACTION_HIERARCHY) {
+            routingMode = RoutingMode.DIJKSTRA; // Until useContractionHierarchy preprocesses this version
+        }
+        traversals = null;
+        if (queries != null) {
+            queries = newQueries(); // Readers holding the old one finish on the old version
+        }
+        if (queryCache != null) {
+            queryCache.clear();
+        }
+    }
 
-        if (start == -1 || end == -1) {
-            System.out.println("Invalid city names");
+    // The update methods below may run while other threads query through queries():
+    // each one builds the next graph version aside and publishes it in a single write,
+    // so a query sees the graph either before or after an update, never half of one.
+
+    // Adds a city without roads; returns false if it already exists
+    public synchronized boolean addCity(String name) {
+        if (searchCity(name) != -1) {
             return false;
         }
-
-        int[] visited = new int[adjacencyList.size()];
-        return dfs(start, end, visited);
+        getOrCreateIndex(name);
+        publish(editableGraph());
+        return true;
     }
 
+    // Removes a city with every road into or out of it. Its vertex id is not reused.
+    public synchronized boolean removeCity(String name) {
+        int index = searchCity(name);
+        if (index == -1) {
+            System.out.println("City not found: " + name);
+            return false;
+        }
 
-    // Prints the sequence of vertices and edges in the Breadth-First Search (BFS) from v1 to v2
-    public void bfsFromTo(String v1, String v2) {
-        int start = searchCity(v1);
-        int end = searchCity(v2);
+        DynamicGraph editable = editableGraph();
+        int[] targets = editable.clearOutEdges(index);
+        int[] sources = editable.clearInEdges(index);
+        cityIndices.remove(name);
+        cityNames[index] = null;
+        namesChanged = true;
+        publish(editable);
+        if (componentIndex != null) {
+            componentIndex.invalidate(); // Removing roads can split components
+        }
+        if (degreeIndex != null) {
+            degreeIndex.extend(cityCount); // Cities added by a delta file being applied are not published yet
+            for (int target : targets) {
+                degreeIndex.removeEdges(index, target, 1);
+            }
+            for (int source : sources) {
+                degreeIndex.removeEdges(source, index, 1);
+            }
+        }
+        return true;
+    }
 
-        if (start == -1 || end == -1) {
-            System.out.println("Invalid city names");
+    // Adds a road from v1 to v2, creating either city if it is new
+    public synchronized void addEdge(String v1, String v2, int weight) {
+        if (weight < 0) {
+            System.out.println("Invalid weight: " + weight);
             return;
         }
+        int from = getOrCreateIndex(v1);
+        int to = getOrCreateIndex(v2);
+        DynamicGraph editable = editableGraph();
+        while (editable.vertexCount() < cityCount) {
+            editable.addVertex();
+        }
+        editable.addEdge(from, to, weight);
+        publish(editable);
+        edgeAdded(from, to);
+    }
 
-        int[] queue = new int[adjacencyList.size()];
-        int front = -1, rear = -1;
+    // Removes every road from v1 to v2 and returns how many there were
+    public synchronized int removeEdge(String v1, String v2) {
+        int from = searchCity(v1);
+        int to = searchCity(v2);
 
-        int[] visited = new int[adjacencyList.size()];
-        int[] parentMap = new int[adjacencyList.size()];
+        if (from == -1 || to == -1) {
+            System.out.println("Invalid city names");
+            return 0;
+        }
 
-        Arrays.fill(visited, -1); // Mark all vertices as not visited
-        Arrays.fill(parentMap, -1); // Initialize parent map
+        DynamicGraph editable = editableGraph();
+        int removed = editable.removeEdges(from, to);
+        if (removed > 0) {
+            publish(editable);
+            if (componentIndex != null) {
+                componentIndex.removeEdge(from, to);
+            }
+            if (degreeIndex != null) {
+                degreeIndex.removeEdges(from, to, removed);
+            }
+        }
+        return removed;
+    }
 
-        // Enqueue the start vertex
-        queue[++rear] = start;
-        visited[start] = start;
+    // Sets the weight of every road from v1 to v2 and returns how many there were
+    public synchronized int changeEdgeWeight(String v1, String v2, int weight) {
+        int from = searchCity(v1);
+        int to = searchCity(v2);
 
-        while (front != rear) {
-            int current = queue[++front];
+        if (from == -1 || to == -1) {
+            System.out.println("Invalid city names");
+            return 0;
+        }
+        if (weight < 0) {
+            System.out.println("Invalid weight: " + weight);
+            return 0;
+        }
 
-            if (current == end) {
-                printBFSPathOrdered(start, end, parentMap);
-                return;
-            }
+        DynamicGraph editable = editableGraph();
+        int changed = editable.setWeight(from, to, weight);
+        if (changed > 0) {
+            publish(editable);
+        }
+        return changed;
+    }
 
-            for (Edge neighbor : adjacencyList.get(current)) {
-                if (visited[neighbor.to] == -1) {
-                    // Enqueue the neighbor vertex
-                    queue[++rear] = neighbor.to;
-                    visited[neighbor.to] = current;
-                    parentMap[neighbor.to] = current;
-                }
+    // Applies the updates listed in a delta file, see GraphDelta for the format.
+    // Queries see none of the file's updates until all of them are in.
+    public synchronized void applyDelta(String filename) {
+        deferPublish = true;
+        try {
+            GraphDelta.apply(filename, this);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            deferPublish = false;
+            if (dynamicGraph != null) {
+                publish(dynamicGraph);
             }
         }
-
-        System.out.println("No path found between " + v1 + " and " + v2);
     }
 
-    // Prints the sequence of vertices and edges in the ordered Breadth-First Search (BFS) path
-    private void printBFSPathOrdered(int start, int end, int[] parentMap) {
-        LinkedList<String> pathList = new LinkedList<>();
-        int current = end;
+    // The first update copies the graph into editable rows; later ones reuse them
+    private DynamicGraph editableGraph() {
+        if (dynamicGraph == null) {
+            dynamicGraph = new DynamicGraph(graph);
+        }
+        return dynamicGraph;
+    }
 
-        // Build the path in reverse order
-        while (current != start) {
-            pathList.addFirst(" -> " + getCityName(current) + " (" + getEdgeWeight(parentMap[current], current) + ")");
-            current = parentMap[current];
+    // Makes the edited rows the current graph version; every city needs a vertex by now
+    private void publish(DynamicGraph editable) {
+        while (editable.vertexCount() < cityCount) {
+            editable.addVertex();
+        }
+        if (deferPublish) {
+            return;
         }
+        graph = editable.publish();
+        graphChanged();
+    }
 
-        pathList.addFirst(getCityName(start));
+    // Resolves a city name given as bytes; only names seen for the first time become Strings
+    private int resolveCity(byte[] buffer, int offset, int length) {
+        int index = cityIndices.getOrDefault(buffer, offset, length, -1);
+        if (index == -1) {
+            index = getOrCreateIndex(new String(buffer, offset, length, StandardCharsets.UTF_8));
+        }
+        return index;
+    }
 
-        // Print the ordered path
-        System.out.print("BFS Path from " + getCityName(start) + " to " + getCityName(end) + ": ");
-        for (String vertex : pathList) {
-            System.out.print(vertex);
+    // Keeps the id of a removed city taken, without a name
+    private void addRemovedVertex() {
+        if (cityCount == cityNames.length) {
+            cityNames = Arrays.copyOf(cityNames, cityCount << 1);
         }
-        System.out.println();
+        cityNames[cityCount++] = null;
+        namesChanged = true;
     }
 
-    private int getEdgeWeight(int from, int to) {
-        for (Edge edge : adjacencyList.get(from)) {
-            if (edge.to == to) {
-                return edge.weight;
+    // Helper method to get or create index for a city
+    private int getOrCreateIndex(String cityName) {
+        int index = cityIndices.putIfAbsent(cityName, cityCount);
+
+        if (index == cityCount) {
+            cityCount++;
+            if (index == cityNames.length) {
+                cityNames = Arrays.copyOf(cityNames, index << 1);
             }
+            cityNames[index] = cityName;
+            namesChanged = true;
         }
-        return -1; // Edge not found
+
+        return index;
     }
 
 
-    // Depth-First Search (DFS) algorithm
-    private boolean dfs(int current, int end, int[] visited) {
-        visited[current] = 1; // Mark current vertex as visited
+    // Returns true if there is a path between vertex v1 and vertex v2
+    public boolean isThereAPath(String v1, String v2) {
+        long startNanos = System.nanoTime();
+        try {
+            int start = searchCity(v1);
+            int end = searchCity(v2);
+
+            if (start == -1 || end == -1) {
+                System.out.println("Invalid city names");
+                return false;
+            }
 
-        if (current == end) {
-            return true;
-        }
+            Boolean cached = queryCache != null ? (Boolean) queryCache.get(QueryCache.Kind.REACHABILITY, start, end) : null;
+            if (cached != null) {
+                return cached;
+            }
 
-        for (Edge neighbor : adjacencyList.get(current)) {
-            if (visited[neighbor.to] == 0 && dfs(neighbor.to, end, visited)) {
-                return true;
+            Boolean known = components().reachable(start, end);
+            boolean reachable;
+            if (known != null) {
+                reachable = known;
+            } else {
+                PathResult path = traversals().dfs(start, end);
+                metrics.recordWork(MetricsRegistry.Operation.IS_THERE_A_PATH, path.visitedCount(), 0);
+                reachable = path.found();
             }
+            if (queryCache != null) {
+                queryCache.put(QueryCache.Kind.REACHABILITY, start, end, reachable);
+            }
+            return reachable;
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.IS_THERE_A_PATH, System.nanoTime() - startNanos);
         }
-
-        return false;
     }
 
-    public void dfsFromTo(String v1, String v2) {
-        int start = searchCity(v1);
-        int end = searchCity(v2);
 
-        if (start == -1 || end == -1) {
-            System.out.println("Invalid city names");
-            return;
-        }
+    // Prints the sequence of vertices and edges in the Breadth-First Search (BFS) from v1 to v2
+    public void bfsFromTo(String v1, String v2) {
+        long startNanos = System.nanoTime();
+        try {
+            int start = searchCity(v1);
+            int end = searchCity(v2);
 
-        int[] visited = new int[adjacencyList.size()];
-        ArrayList<Edge> path = new ArrayList<>();
+            if (start == -1 || end == -1) {
+                System.out.println("Invalid city names");
+                return;
+            }
 
-        boolean pathFound = dfsWithPath(start, end, visited, path);
+            PathResult path = queryCache != null ? (PathResult) queryCache.get(QueryCache.Kind.BFS_PATH, start, end) : null;
+            if (path == null) {
+                path = traversals().bfs(start, end);
+                metrics.recordWork(MetricsRegistry.Operation.BFS_FROM_TO, path.visitedCount(), 0);
+                if (queryCache != null) {
+                    queryCache.put(QueryCache.Kind.BFS_PATH, start, end, path);
+                }
+            }
 
-        if (pathFound) {
-            printDFSPath(path);
-        } else {
-            System.out.println("No path found from " + v1 + " to " + v2);
+            if (path.found()) {
+                printBFSPathOrdered(path);
+            } else {
+                System.out.println("No path found between " + v1 + " and " + v2);
+            }
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.BFS_FROM_TO, System.nanoTime() - startNanos);
         }
     }
 
-    private boolean dfsWithPath(int current, int end, int[] visited, ArrayList<Edge> path) {
-        if (current == end) {
-            return true;
+    // Prints the sequence of vertices and edges in the ordered Breadth-First Search (BFS) path
+    private void printBFSPathOrdered(PathResult path) {
+        List<String> cities = path.cities();
+        System.out.print("BFS Path from " + cities.get(0) + " to " + cities.get(cities.size() - 1) + ": ");
+        System.out.print(cities.get(0));
+        for (int i = 0; i < path.hops(); i++) {
+            System.out.print(" -> " + cities.get(i + 1) + " (" + path.weight(i) + ")");
         }
+        System.out.println();
+    }
 
-        visited[current] = 1;
+    public void dfsFromTo(String v1, String v2) {
+        long startNanos = System.nanoTime();
+        try {
+            int start = searchCity(v1);
+            int end = searchCity(v2);
 
-        for (Edge neighbor : adjacencyList.get(current)) {
-            if (visited[neighbor.to] == 0) {
-                path.add(neighbor);
-                boolean pathExists = dfsWithPath(neighbor.to, end, visited, path);
-                if (pathExists) {
-                    return true;
-                }
-                path.remove(path.size() - 1); // Remove the last edge in the path
+            if (start == -1 || end == -1) {
+                System.out.println("Invalid city names");
+                return;
             }
-        }
 
-        return false;
+            PathResult path = traversals().dfs(start, end);
+            metrics.recordWork(MetricsRegistry.Operation.DFS_FROM_TO, path.visitedCount(), 0);
+
+            if (path.found()) {
+                printDFSPath(path);
+            } else {
+                System.out.println("No path found from " + v1 + " to " + v2);
+            }
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.DFS_FROM_TO, System.nanoTime() - startNanos);
+        }
     }
 
-    private void printDFSPath(ArrayList<Edge> path) {
-        for (Edge e : path) {
-            System.out.println(getCityName(e.from) + " -> " + getCityName(e.to) + " (" + e.weight + ")");
+    private void printDFSPath(PathResult path) {
+        List<String> cities = path.cities();
+        for (int i = 0; i < path.hops(); i++) {
+            System.out.println(cities.get(i) + " -> " + cities.get(i + 1) + " (" + path.weight(i) + ")");
         }
     }
 
 
     // Helper method to get city name by index
     private String getCityName(int index) {
-        for (Map.Entry<String, Integer> entry : cityIndices.entries) {
-            if (entry.getValue().equals(index)) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return index >= 0 && index < cityCount ? cityNames[index] : null;
     }
 
+    // Cities with the most outgoing roads, in load order
     public List<String> highestDegree() {
-        int maxDegree = 0;
-        List<String> highestDegreeCities = new ArrayList<>();
-
-        for (int i = 0; i < adjacencyList.size(); i++) {
-            int degree = adjacencyList.get(i).size();
-            if (degree > maxDegree) {
-                maxDegree = degree;
-                highestDegreeCities.clear();
-                highestDegreeCities.add(getCityName(i));
-            } else if (degree == maxDegree) {
-                highestDegreeCities.add(getCityName(i));
+        long startNanos = System.nanoTime();
+        try {
+            List<String> highestDegreeCities = new ArrayList<>();
+            for (int v : degrees().withMaxOutDegree()) {
+                if (cityNames[v] != null) { // Removed cities keep degree 0
+                    highestDegreeCities.add(cityNames[v]);
+                }
             }
+            return highestDegreeCities;
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.HIGHEST_DEGREE, System.nanoTime() - startNanos);
         }
+    }
 
-        return highestDegreeCities;
+    // The k cities with the most outgoing roads, most first; ties in no particular order
+    public List<String> topDegreeCities(int k) {
+        DegreeIndex degrees = degrees();
+        List<String> top = new ArrayList<>(Math.min(k, cityCount));
+        for (int rank = 0; rank < degrees.vertexCount() && top.size() < k; rank++) {
+            String name = cityNames[degrees.byOutDegree(rank)];
+            if (name != null) {
+                top.add(name);
+            }
+        }
+        return top;
     }
 
 
+    // The graph is directed if some edge has no edge back
     public boolean isDirected() {
-        for (int i = 0; i < adjacencyList.size(); i++) {
-            for (Edge edge : adjacencyList.get(i)) {
-                // If there is an edge from vertex i, and there is no edge from the corresponding vertex to i, the graph is directed.
-                if (!hasEdge(edge.to, i)) {
-                    return true;
-                }
-            }
+        long startNanos = System.nanoTime();
+        try {
+            return !adjacency().isSymmetric();
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.IS_DIRECTED, System.nanoTime() - startNanos);
         }
-        return false; // If all edges are bidirectional, the graph is not directed.
     }
 
-    // Helper function to check whether a specific edge exists
+    // Helper function to check whether a specific edge exists; long rows are binary
+    // searched in the sorted index. While the index is stale after an update, rows are
+    // scanned instead, until the scans have cost as much as rebuilding it.
     private boolean hasEdge(int from, int to) {
-        for (Edge edge : adjacencyList.get(from)) {
-            if (edge.to == to) {
-                return true;
+        int degree = graph.degree(from);
+        if (degree > MAX_SCANNED_DEGREE) {
+            if (adjacency != null && adjacency.graph() == graph) {
+                return adjacency.hasEdge(from, to);
+            }
+            staleScans += degree;
+            if (staleScans >= graph.edgeCount()) {
+                return adjacency().hasEdge(from, to);
             }
         }
-        return false;
+        return graph.findEdge(from, to) != -1;
     }
 
-    public int whatIsShortestPathLength(String v1, String v2) {
+    private AdjacencyIndex adjacency() {
+        if (adjacency == null || adjacency.graph() != graph) {
+            adjacency = AdjacencyIndex.build(graph);
+            staleScans = 0;
+        }
+        return adjacency;
+    }
+
+    // Distances are sums of int weights, so they are returned as long
+    public long whatIsShortestPathLength(String v1, String v2) {
+        long startNanos = System.nanoTime();
+        try {
+            int start = searchCity(v1);
+            int end = searchCity(v2);
+
+            if (start == -1 || end == -1) {
+                System.out.println("Invalid city names");
+                return -1;
+            }
+
+            Long cached = queryCache != null ? (Long) queryCache.get(QueryCache.Kind.DISTANCE, start, end) : null;
+            long distance;
+            if (cached != null) {
+                distance = cached;
+            } else {
+                PointToPointRouter router = router();
+                distance = router.distance(start, end);
+                metrics.recordWork(MetricsRegistry.Operation.SHORTEST_PATH_LENGTH, router.settledCount(), router.relaxedCount());
+                if (queryCache != null) {
+                    queryCache.put(QueryCache.Kind.DISTANCE, start, end, distance);
+                }
+            }
+
+            if (distance != -1) {
+                return distance;
+            } else {
+                System.out.println(v1 + " --x-- " + v2);
+                return -1;
+            }
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.SHORTEST_PATH_LENGTH, System.nanoTime() - startNanos);
+        }
+    }
+
+    // Returns the cities on a minimum-weight route from v1 to v2, or an empty list if there is none
+    public List<String> shortestRoute(String v1, String v2) {
         int start = searchCity(v1);
         int end = searchCity(v2);
 
         if (start == -1 || end == -1) {
             System.out.println("Invalid city names");
-            return -1;
+            return new ArrayList<>();
         }
 
-        Queue<Integer> queue = new Queue<>();
-        int[] distances = new int[adjacencyList.size()];
-        Arrays.fill(distances, -1); // Mark all vertices as unvisited
+        PointToPointRouter router = router();
+        List<String> route = new ArrayList<>();
+        if (router.distance(start, end) != -1) {
+            for (int vertex : router.route()) {
+                route.add(getCityName(vertex));
+            }
+        }
+        return route;
+    }
 
-        queue.add(start);
-        distances[start] = 0;
+    // Distances from every source to every target in one call, see GraphQueries.distanceMatrix
+    public long[][] distanceMatrix(List<String> sources, List<String> targets) {
+        return queries().distanceMatrix(sources, targets);
+    }
 
-        while (!queue.isEmpty()) {
-            int current = queue.remove();
+    // Selects Dijkstra, bidirectional Dijkstra, ALT or the contraction hierarchy for shortest path
+    // queries; the hierarchy is built here if useContractionHierarchy has not provided one.
+    // Loads and updates fall back to Dijkstra, as the hierarchy no longer matches the graph.
+    public synchronized void setRoutingMode(RoutingMode mode) {
+        if (mode == RoutingMode.CONTRACTION_HIERARCHY && contractionHierarchy == null) {
+            useContractionHierarchy(ContractionHierarchy.build(graph));
+        } else {
+            routingMode = mode;
+        }
+    }
 
-            for (Edge neighbor : adjacencyList.get(current)) {
-                if (distances[neighbor.to] == -1) {
-                    distances[neighbor.to] = distances[current] + neighbor.weight;
-                    queue.add(neighbor.to);
-                }
+    // Loads the contraction hierarchy cached in filename, or builds and caches it when the
+    // file is missing or belongs to another graph version, then routes queries through it
+    public synchronized void useContractionHierarchy(String filename) {
+        ContractionHierarchy hierarchy = null;
+        try {
+            hierarchy = ContractionHierarchy.load(filename, graph);
+            if (hierarchy == null) {
+                hierarchy = ContractionHierarchy.build(graph);
+                hierarchy.save(filename);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (hierarchy == null) {
+                hierarchy = ContractionHierarchy.build(graph);
             }
         }
+        useContractionHierarchy(hierarchy);
+    }
 
-        if (distances[end] != -1) {
-            return distances[end];
-        } else {
-            System.out.println(v1 + " --x-- " + v2);
-            return -1;
+    private void useContractionHierarchy(ContractionHierarchy hierarchy) {
+        contractionHierarchy = hierarchy;
+        routingMode = RoutingMode.CONTRACTION_HIERARCHY;
+        traversals = null;
+        if (queries != null) {
+            queries = newQueries(); // So the frozen graph picks up the hierarchy
         }
     }
 
+    // Reports query latencies, search work and load throughput to registry, along with
+    // gauges for the graph's heap footprint and the query cache; NONE turns this off.
+    // After updates, graphBytes is an upper bound, see CsrGraph.sizeInBytes.
+    public void setMetrics(MetricsRegistry registry) {
+        metrics = registry;
+        registry.gauge("cities", () -> cityIndices.size());
+        registry.gauge("roads", () -> graph.edgeCount());
+        registry.gauge("graphBytes", () -> graph.sizeInBytes());
+        registry.gauge("cacheHitRatio", () -> queryCache != null ? queryCache.hitRate() : 0);
+        registry.gauge("cacheBytes", () -> queryCache != null ? queryCache.bytes() : 0);
+    }
 
-    public int numberOfSimplePaths(String v1, String v2) {
-        int start = searchCity(v1);
-        int end = searchCity(v2);
+    // Caches up to maxBytes of isThereAPath, bfsFromTo and whatIsShortestPathLength results;
+    // the cache is emptied whenever the graph is reloaded
+    public void enableQueryCache(long maxBytes) {
+        queryCache = new QueryCache(maxBytes);
+    }
 
-        if (start == -1 || end == -1) {
-            System.out.println("Invalid city names");
-            return 0;
+    public void disableQueryCache() {
+        queryCache = null;
+    }
+
+    // The active cache with its hit and miss counters, or null when caching is off
+    public QueryCache queryCache() {
+        return queryCache;
+    }
+
+    // Weak and strong components of the current graph
+    public ComponentIndex components() {
+        if (componentIndex == null || componentIndex.vertexCount() != graph.vertexCount()) {
+            componentIndex = ComponentIndex.build(graph);
         }
+        return componentIndex;
+    }
 
-        // Use a stack to perform iterative DFS
-        Stack<Integer> stack = new Stack<>();
-        stack.push(start);
+    // In- and out-degree of every city, with the highest-degree ones and the distribution
+    public DegreeIndex degrees() {
+        if (degreeIndex == null || degreeIndex.vertexCount() != graph.vertexCount()) {
+            degreeIndex = DegreeIndex.build(graph);
+        }
+        return degreeIndex;
+    }
 
-        // Use a map to store the count of simple paths for each node
-        Map<Integer, Integer> pathCountMap = new Map<>();
-        pathCountMap.put(start, 1);
+    // Immutable snapshot of the current graph, safe to share with any number of threads
+    public FrozenGraph frozenGraph() {
+        return queries().frozenGraph();
+    }
 
-        int pathCount = 0;
+    // Thread-safe query API over frozenGraph(), callable from any thread, even while
+    // another one updates this City. It is replaced by every load or update; a caller
+    // that keeps the returned object keeps querying the version it was made for.
+    public GraphQueries queries() {
+        GraphQueries current = queries;
+        return current != null ? current : createQueries();
+    }
 
-        while (!stack.isEmpty()) {
-            int current = stack.pop();
+    private synchronized GraphQueries createQueries() {
+        if (queries == null) {
+            queries = newQueries();
+        }
+        return queries;
+    }
 
-            if (current == end) {
-                pathCount += pathCountMap.get(current);
-                continue;
-            }
+    // Published graph versions are never written again, so they are frozen as they are;
+    // the name index is only rebuilt when cities were added or removed
+    private GraphQueries newQueries() {
+        GraphQueries old = queries;
+        FrozenGraph frozen = old != null && !namesChanged
+                ? old.frozenGraph().withGraph(graph, contractionHierarchy)
+                : new FrozenGraph(cityNames, graph, contractionHierarchy);
+        namesChanged = false;
+        return new GraphQueries(frozen);
+    }
 
-            boolean hasUnvisitedNeighbor = false;
+    private GraphQueries traversals() {
+        if (traversals == null) {
+            traversals = GraphQueries.overLiveGraph(graph, cityNames, contractionHierarchy);
+        }
+        return traversals;
+    }
 
-            for (Edge neighbor : adjacencyList.get(current)) {
-                if (!pathCountMap.containsKey(neighbor.to)) {
-                    stack.push(neighbor.to);
+    // The router keeps its arrays between queries and graph versions
+    private PointToPointRouter router() {
+        if (router == null) {
+            router = new PointToPointRouter(graph);
+        } else if (router.graph() != graph) {
+            router.setGraph(graph);
+        }
+        router.setMode(routingMode);
+        if (contractionHierarchy != null && contractionHierarchy.vertexCount() == graph.vertexCount()) {
+            router.setContractionHierarchy(contractionHierarchy);
+        }
+        return router;
+    }
 
-                    // Update the path count for the neighbor
-                    pathCountMap.put(neighbor.to, pathCountMap.getOrDefault(current, 0) + 1);
-                    hasUnvisitedNeighbor = true;
-                }
+
+    // Counts simple paths from v1 to v2 in O(V + E) when they run through an acyclic part
+    // of the graph; otherwise enumerates them within the limits set by setSimplePathLimits
+    public BigInteger numberOfSimplePaths(String v1, String v2) {
+        long startNanos = System.nanoTime();
+        try {
+            int start = searchCity(v1);
+            int end = searchCity(v2);
+
+            if (start == -1 || end == -1) {
+                System.out.println("Invalid city names");
+                return BigInteger.ZERO;
             }
 
-            // If there are no unvisited neighbors, backtrack
-            if (!hasUnvisitedNeighbor) {
-                pathCountMap.remove(current);
+            if (pathCounter == null || pathCounter.graph() != graph) {
+                pathCounter = new PathCounter(graph);
             }
+            PathCounter.Result result = pathCounter.count(start, end, maxSimplePathLength, maxSimplePaths);
+            if (!result.isExact()) {
+                System.out.println("Stopped counting after " + maxSimplePaths + " paths");
+            }
+            return result.count();
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.SIMPLE_PATHS, System.nanoTime() - startNanos);
         }
+    }
 
-        return pathCount;
+    // Bounds the enumeration used for cyclic graphs: paths longer than maxLength edges are
+    // ignored and counting stops after maxPaths paths
+    public void setSimplePathLimits(int maxLength, long maxPaths) {
+        if (maxLength < 0 || maxPaths < 1) {
+            throw new IllegalArgumentException("Invalid simple path limits");
+        }
+        maxSimplePathLength = maxLength;
+        maxSimplePaths = maxPaths;
     }
 
 
     public boolean areTheyAdjacent(String v1, String v2) {
-        int index1 = searchCity(v1);
-        int index2 = searchCity(v2);
-
-        if (index1 == -1 || index2 == -1) {
-            System.out.println("One or both cities not found");
-            return false;
-        }
-
-        for (Edge edge : adjacencyList.get(index1)) {
-            if (edge.to == index2) {
-                return true;
+        long startNanos = System.nanoTime();
+        try {
+            int index1 = searchCity(v1);
+            int index2 = searchCity(v2);
+
+            if (index1 == -1 || index2 == -1) {
+                System.out.println("One or both cities not found");
+                return false;
             }
-        }
 
-        return false;
+            return hasEdge(index1, index2);
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.ADJACENT, System.nanoTime() - startNanos);
+        }
     }
 
 
     public boolean isThereACycle(String v1) {
-        int startIndex = searchCity(v1);
+        long startNanos = System.nanoTime();
+        try {
+            int startIndex = searchCity(v1);
 
-        if (startIndex == -1) {
-            System.out.println("City not found: " + v1);
-            return false;
-        }
+            if (startIndex == -1) {
+                System.out.println("City not found: " + v1);
+                return false;
+            }
 
-        boolean[] visited = new boolean[adjacencyList.size()];
-        return dfsForCycle(startIndex, startIndex, visited, -1);
+            return traversals().hasCycle(startIndex);
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.CYCLE, System.nanoTime() - startNanos);
+        }
     }
 
-    private boolean dfsForCycle(int current, int start, boolean[] visited, int parent) {
-        visited[current] = true;
+    public int numberOfVerticesInComponent(String v1) {
+        long startNanos = System.nanoTime();
+        try {
+            int startIndex = searchCity(v1);
 
-        for (Edge neighbor : adjacencyList.get(current)) {
-            if (!visited[neighbor.to]) {
-                if (dfsForCycle(neighbor.to, start, visited, current)) {
-                    return true;
-                }
-            } else if (neighbor.to == start && neighbor.to != parent) {
-                // If the neighbor is the start vertex, and it is not the parent of the current vertex, there is a cycle
-                return true;
+            if (startIndex == -1) {
+                System.out.println("City not found: " + v1);
+                return 0;
             }
-        }
 
-        return false;
+            int size = components().reachableCount(startIndex);
+            if (size == -1) {
+                size = traversals().componentSize(startIndex);
+                metrics.recordWork(MetricsRegistry.Operation.COMPONENT_SIZE, size, 0);
+            }
+            return size;
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.COMPONENT_SIZE, System.nanoTime() - startNanos);
+        }
     }
 
-    public int numberOfVerticesInComponent(String v1) {
-        int startIndex = searchCity(v1);
+    // Returns the fewest roads on any path from v1 to v2, or -1 if there is no path
+    public int hopDistance(String v1, String v2) {
+        int start = searchCity(v1);
+        int end = searchCity(v2);
 
-        if (startIndex == -1) {
-            System.out.println("City not found: " + v1);
-            return 0;
+        if (start == -1 || end == -1) {
+            System.out.println("Invalid city names");
+            return -1;
         }
 
-        boolean[] visited = new boolean[adjacencyList.size()];
-        return bfsComponentSize(startIndex, visited);
+        return traversals().hopDistance(start, end);
     }
 
-    private int bfsComponentSize(int startIndex, boolean[] visited) {
-        Queue<Integer> queue = new Queue<>();
-        queue.add(startIndex);
-        visited[startIndex] = true;
-        int count = 0;
+    public String[] neighbors(String v1) {
+        long startNanos = System.nanoTime();
+        try {
+            int vertexIndex = searchCity(v1);
 
-        while (!queue.isEmpty()) {
-            int current = queue.pop();
-            count++;
+            if (vertexIndex == -1) {
+                System.out.println("City not found: " + v1);
+                return new String[0];
+            }
 
-            for (Edge neighbor : adjacencyList.get(current)) {
-                if (!visited[neighbor.to]) {
-                    visited[neighbor.to] = true;
-                    queue.add(neighbor.to);
-                }
+            String[] neighbors = new String[graph.degree(vertexIndex)];
+            int i = 0;
+
+            for (int e = graph.begin(vertexIndex), last = graph.end(vertexIndex); e < last; e++) {
+                neighbors[i++] = getCityName(graph.target(e));
             }
+
+            return neighbors;
+        } finally {
+            metrics.recordQuery(MetricsRegistry.Operation.NEIGHBORS, System.nanoTime() - startNanos);
         }
-        return count;
     }
 
-
-    public String[] neighbors(String v1) {
+    // Cities with a road into v1, one per road, in load order
+    public String[] predecessors(String v1) {
         int vertexIndex = searchCity(v1);
 
         if (vertexIndex == -1) {
@@ -449,26 +862,12 @@ public class City {
             return new String[0];
         }
 
-        String[] neighbors = new String[adjacencyList.get(vertexIndex).size()];
-        int i = 0;
-
-        for (Edge edge : adjacencyList.get(vertexIndex)) {
-            neighbors[i++] = getCityName(edge.to);
+        int[] sources = adjacency().predecessors(vertexIndex);
+        String[] predecessors = new String[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            predecessors[i] = getCityName(sources[i]);
         }
-
-        return neighbors;
+        return predecessors;
     }
 
-
-    private static class Edge {
-        int from;
-        int to;
-        int weight;
-
-        public Edge(int from, int to, int weight) {
-            this.from = from;
-            this.to = to;
-            this.weight = weight;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+// Times loading and every City query on a synthetic graph written in the graph.txt
+// format, and reports time and heap allocation per operation. Each operation runs
+// once to warm up, then is timed over the same inputs. Results go to a CSV file;
+// given the CSV of an earlier run as the baseline, each line also shows the change.
+// Usage: java CityBenchmark [grid|geometric|powerlaw] [vertices] [queries] [baseline.csv]
+public class CityBenchmark {
+    private static final int LOAD_ROUNDS = 3;
+    private static final int SIMPLE_PATH_MAX_LENGTH = 6; // Enumeration grows as degree^length on cyclic graphs
+    private static final long SIMPLE_PATH_MAX_PATHS = 100_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        String shape = args.length > 0 ? args[0] : "grid";
+        int vertices = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        HashMap<String, double[]> baseline = args.length > 3 ? readResults(args[3]) : new HashMap<>();
+
+        CsrGraph graph = generate(shape, vertices);
+        System.out.println("Graph: " + shape + ", " + graph.vertexCount() + " vertices, " + graph.edgeCount() + " edges");
+        File file = File.createTempFile("city-benchmark", ".txt");
+        file.deleteOnExit();
+        GraphGenerator.write(graph, file.getPath());
+
+        City[] loaded = new City[1];
+        List<Result> results = new ArrayList<>();
+        results.add(measure("readGraphFromFile", LOAD_ROUNDS, i -> {
+            loaded[0] = new City();
+            loaded[0].readGraphFromFile(file.getPath());
+        }));
+        City city = loaded[0];
+        city.setSimplePathLimits(SIMPLE_PATH_MAX_LENGTH, SIMPLE_PATH_MAX_PATHS);
+
+        // Endpoints are drawn from the vertices that have out-edges, so every name was loaded
+        Random random = new Random(7);
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = GraphGenerator.vertexName(randomVertexWithEdges(graph, random));
+            to[i] = GraphGenerator.vertexName(randomVertexWithEdges(graph, random));
+        }
+
+        results.add(measure("isThereAPath", queries, i -> city.isThereAPath(from[i], to[i])));
+        results.add(measure("bfsFromTo", queries, i -> city.bfsFromTo(from[i], to[i])));
+        results.add(measure("dfsFromTo", queries, i -> city.dfsFromTo(from[i], to[i])));
+        results.add(measure("whatIsShortestPathLength", queries, i -> city.whatIsShortestPathLength(from[i], to[i])));
+        results.add(measure("numberOfSimplePaths", Math.max(1, queries / 10), i -> city.numberOfSimplePaths(from[i], to[i])));
+        results.add(measure("highestDegree", queries, i -> city.highestDegree()));
+        results.add(measure("isDirected", queries, i -> city.isDirected()));
+        results.add(measure("numberOfVerticesInComponent", queries, i -> city.numberOfVerticesInComponent(from[i])));
+
+        String output = "city-benchmark-" + shape + "-" + vertices + ".csv";
+        try (PrintWriter writer = new PrintWriter(output, StandardCharsets.UTF_8)) {
+            writer.println("operation,nanosPerOp,bytesPerOp");
+            for (Result result : results) {
+                writer.println(result.name + "," + result.nanosPerOp + "," + result.bytesPerOp);
+            }
+        }
+
+        System.out.printf("%-28s %14s %14s%n", "Operation", "us/op", "bytes/op");
+        for (Result result : results) {
+            double[] base = baseline.get(result.name);
+            String change = base == null ? ""
+                    : String.format("  time %+.1f%%, alloc %+.1f%%", percent(result.nanosPerOp, base[0]), percent(result.bytesPerOp, base[1]));
+            System.out.printf("%-28s %14.2f %14.0f%s%n", result.name, result.nanosPerOp / 1e3, result.bytesPerOp, change);
+        }
+        System.out.println("Results written to " + output);
+    }
+
+    private static CsrGraph generate(String shape, int vertices) {
+        switch (shape) {
+            case "grid" -> {
+                int side = (int) Math.ceil(Math.sqrt(vertices));
+                return GraphGenerator.grid(side, side, 10, 42);
+            }
+            case "geometric" -> {
+                return GraphGenerator.randomGeometric(vertices, 6, 10, 42);
+            }
+            case "powerlaw" -> {
+                return GraphGenerator.powerLaw(vertices, 3, 10, 42);
+            }
+            default -> throw new IllegalArgumentException("Unknown graph shape: " + shape);
+        }
+    }
+
+    private static int randomVertexWithEdges(CsrGraph graph, Random random) {
+        while (true) {
+            int v = random.nextInt(graph.vertexCount());
+            if (graph.degree(v) > 0) {
+                return v;
+            }
+        }
+    }
+
+    // Runs operation(0 .. count) once to warm up, then again timed; the queries' printing is discarded
+    private static Result measure(String name, int count, IntConsumer operation) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < count; i++) {
+                operation.accept(i);
+            }
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                operation.accept(i);
+            }
+            long elapsed = System.nanoTime() - start;
+            return new Result(name, (double) elapsed / count, (double) (allocatedBytes() - bytes) / count);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    // Bytes allocated so far by every live thread, so work handed to pools is counted too;
+    // threads that end during a measurement take their share with them
+    private static long allocatedBytes() {
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    private static HashMap<String, double[]> readResults(String filename) throws IOException {
+        HashMap<String, double[]> results = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            reader.readLine(); // Header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 3) {
+                    results.put(parts[0], new double[] {Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+                }
+            }
+        }
+        return results;
+    }
+
+    private static double percent(double value, double base) {
+        return base == 0 ? 0 : (value - base) * 100 / base;
+    }
+
+    private static class Result {
+        private final String name;
+        private final double nanosPerOp;
+        private final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+// Component membership of every vertex, so reachability and component size
+// questions become array lookups:
+//
+//   weak components    union-find over the edges taken as undirected, built in
+//                      parallel with CAS linking, then flattened to root ids
+//   strong components  Tarjan's algorithm (iterative); ids are assigned in
+//                      completion order, so every edge between two components
+//                      goes from a higher id to a lower one
+//
+// addEdge keeps both up to date: weak components are merged in place, and the
+// strong components stay valid unless the edge could close a cycle between two
+// of them, in which case they are recomputed on the next query. Removing an edge
+// can split components, which neither structure can undo, so removeEdge marks
+// them for recomputation instead.
+public class ComponentIndex {
+    private CsrGraph graph;
+    private int vertexCount;
+
+    private int[] weakParents; // Union-find forest; roots are their own parent
+    private int[] weakSizes;   // Valid at roots
+    private boolean weakStale;
+
+    private int[] strongIds;
+    private int[] strongSizes;
+    private boolean[] strongSinks; // No edge leaves the component
+    private boolean strongStale;
+
+    private ComponentIndex(CsrGraph graph) {
+        this.graph = graph;
+        this.vertexCount = graph.vertexCount();
+    }
+
+    public static ComponentIndex build(CsrGraph graph) {
+        ComponentIndex index = new ComponentIndex(graph);
+        index.buildWeak();
+        index.buildStrong();
+        return index;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    // Follows the graph to a new version that keeps the old vertex ids and may add
+    // vertices; edge changes must then be reported through addEdge and removeEdge
+    public void extend(CsrGraph newGraph) {
+        graph = newGraph;
+        grow(newGraph.vertexCount());
+    }
+
+    // Adds single-vertex components up to count; used ahead of the graph while updates are batched
+    private void grow(int count) {
+        int oldCount = vertexCount;
+        vertexCount = Math.max(count, vertexCount);
+        if (vertexCount > weakParents.length) {
+            int capacity = Math.max(vertexCount, weakParents.length + (weakParents.length >> 1));
+            weakParents = Arrays.copyOf(weakParents, capacity);
+            weakSizes = Arrays.copyOf(weakSizes, capacity);
+        }
+        for (int v = oldCount; v < vertexCount; v++) {
+            weakParents[v] = v;
+            weakSizes[v] = 1;
+        }
+        if (vertexCount != oldCount) {
+            strongStale = true; // New vertices have no strong component yet
+        }
+    }
+
+    // Records a new edge from -> to of the current graph version
+    public void addEdge(int from, int to) {
+        if (Math.max(from, to) >= vertexCount) {
+            grow(Math.max(from, to) + 1);
+        }
+        if (!weakStale) {
+            union(from, to);
+        }
+        if (strongStale) {
+            return;
+        }
+        int a = strongIds[from];
+        int b = strongIds[to];
+        if (a > b) {
+            strongSinks[a] = false; // Follows the existing topological order: no new cycle
+        } else if (a < b) {
+            strongStale = true; // May close a cycle through components b ... a
+        }
+    }
+
+    // Records that edges from -> to were removed from the current graph version
+    public void removeEdge(int from, int to) {
+        if (from != to) {
+            invalidate();
+        }
+    }
+
+    // Recomputes both structures on the next query
+    public void invalidate() {
+        weakStale = true;
+        strongStale = true;
+    }
+
+    public boolean sameWeakComponent(int u, int v) {
+        refreshWeak();
+        return find(u) == find(v);
+    }
+
+    public int weakComponentSize(int v) {
+        refreshWeak();
+        return weakSizes[find(v)];
+    }
+
+    public boolean sameStrongComponent(int u, int v) {
+        refreshStrong();
+        return strongIds[u] == strongIds[v];
+    }
+
+    public int strongComponentSize(int v) {
+        refreshStrong();
+        return strongSizes[strongIds[v]];
+    }
+
+    // True when no edge leaves v's strong component, so it reaches nothing else
+    public boolean isSinkComponent(int v) {
+        refreshStrong();
+        return strongSinks[strongIds[v]];
+    }
+
+    // Returns TRUE or FALSE when the components decide whether to is reachable from
+    // from, or null when only a search can tell
+    public Boolean reachable(int from, int to) {
+        if (sameStrongComponent(from, to)) {
+            return Boolean.TRUE;
+        }
+        if (!sameWeakComponent(from, to) || isSinkComponent(from)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    // Number of vertices reachable from v, or -1 when only a search can tell. It is
+    // the strong component when nothing leaves it, and the weak component when the
+    // two coincide, as they always do in an undirected graph.
+    public int reachableCount(int v) {
+        int strongSize = strongComponentSize(v);
+        if (isSinkComponent(v) || strongSize == weakComponentSize(v)) {
+            return strongSize;
+        }
+        return -1;
+    }
+
+    private void buildWeak() {
+        AtomicIntegerArray parents = new AtomicIntegerArray(vertexCount);
+        IntStream.range(0, vertexCount).parallel().forEach(v -> parents.set(v, v));
+        IntStream.range(0, vertexCount).parallel().forEach(v -> {
+            for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+                concurrentUnion(parents, v, graph.target(e));
+            }
+        });
+
+        weakParents = new int[vertexCount];
+        weakSizes = new int[vertexCount];
+        IntStream.range(0, vertexCount).parallel().forEach(v -> weakParents[v] = concurrentFind(parents, v));
+        for (int v = 0; v < vertexCount; v++) {
+            weakSizes[weakParents[v]]++;
+        }
+        weakStale = false;
+    }
+
+    // Path-halving find that tolerates concurrent links
+    private static int concurrentFind(AtomicIntegerArray parents, int v) {
+        while (true) {
+            int parent = parents.get(v);
+            if (parent == v) {
+                return v;
+            }
+            int grandparent = parents.get(parent);
+            if (parent != grandparent) {
+                parents.compareAndSet(v, parent, grandparent);
+            }
+            v = grandparent;
+        }
+    }
+
+    // Links the larger root under the smaller, retrying when another thread moved either root first
+    private static void concurrentUnion(AtomicIntegerArray parents, int u, int v) {
+        while (true) {
+            u = concurrentFind(parents, u);
+            v = concurrentFind(parents, v);
+            if (u == v) {
+                return;
+            }
+            if (u < v) {
+                int swap = u;
+                u = v;
+                v = swap;
+            }
+            if (parents.compareAndSet(u, u, v)) {
+                return;
+            }
+        }
+    }
+
+    private int find(int v) {
+        while (weakParents[v] != v) {
+            weakParents[v] = weakParents[weakParents[v]]; // Path halving
+            v = weakParents[v];
+        }
+        return v;
+    }
+
+    private void union(int u, int v) {
+        u = find(u);
+        v = find(v);
+        if (u == v) {
+            return;
+        }
+        if (weakSizes[u] < weakSizes[v]) {
+            int swap = u;
+            u = v;
+            v = swap;
+        }
+        weakParents[v] = u;
+        weakSizes[u] += weakSizes[v];
+    }
+
+    private void refreshWeak() {
+        if (weakStale) {
+            buildWeak();
+        }
+    }
+
+    private void refreshStrong() {
+        if (strongStale) {
+            buildStrong();
+        }
+    }
+
+    // Tarjan's algorithm with an explicit stack of (vertex, next edge slot) frames
+    private void buildStrong() {
+        int[] order = new int[vertexCount]; // Discovery order + 1, 0 while undiscovered
+        int[] low = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        IntStack members = new IntStack(); // Vertices not yet assigned to a component
+        IntStack vertices = new IntStack();
+        IntStack cursors = new IntStack();
+        int[] ids = new int[vertexCount];
+        IntStack sizes = new IntStack();
+        int discovered = 0;
+
+        for (int root = 0; root < vertexCount; root++) {
+            if (order[root] != 0) {
+                continue;
+            }
+            order[root] = low[root] = ++discovered;
+            members.push(root);
+            onStack[root] = true;
+            vertices.push(root);
+            cursors.push(graph.begin(root));
+
+            while (!vertices.isEmpty()) {
+                int depth = vertices.size() - 1;
+                int current = vertices.peek();
+                int e = cursors.peek();
+                if (e < graph.end(current)) {
+                    cursors.set(depth, e + 1);
+                    int neighbor = graph.target(e);
+                    if (order[neighbor] == 0) {
+                        order[neighbor] = low[neighbor] = ++discovered;
+                        members.push(neighbor);
+                        onStack[neighbor] = true;
+                        vertices.push(neighbor);
+                        cursors.push(graph.begin(neighbor));
+                    } else if (onStack[neighbor]) {
+                        low[current] = Math.min(low[current], order[neighbor]);
+                    }
+                    continue;
+                }
+
+                vertices.pop();
+                cursors.pop();
+                if (depth > 0) {
+                    int parent = vertices.peek();
+                    low[parent] = Math.min(low[parent], low[current]);
+                }
+                if (low[current] == order[current]) {
+                    // current is the root of a component: everything above it on the member stack
+                    int id = sizes.size();
+                    int size = 0;
+                    int member;
+                    do {
+                        member = members.pop();
+                        onStack[member] = false;
+                        ids[member] = id;
+                        size++;
+                    } while (member != current);
+                    sizes.push(size);
+                }
+            }
+        }
+
+        boolean[] sinks = new boolean[sizes.size()];
+        Arrays.fill(sinks, true);
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+                if (ids[graph.target(e)] != ids[v]) {
+                    sinks[ids[v]] = false;
+                }
+            }
+        }
+
+        strongIds = ids;
+        strongSizes = sizes.toArray();
+        strongSinks = sinks;
+        strongStale = false;
+    }
+}
@@ -0,0 +1,459 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Contraction Hierarchy over a CsrGraph. Vertices are contracted one by one in
+// order of importance; shortcut edges keep shortest distances intact among the
+// vertices that remain. Queries then only need to search "upwards" in rank from
+// both ends, see ContractionHierarchyQuery.
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x43484831; // "CHH1"
+    private static final int FORMAT_VERSION = 2; // Version 2 stores weights as longs
+    // Witness searches are cut short when only estimating a priority
+    private static final int ESTIMATE_SETTLE_LIMIT = 50;
+    private static final int CONTRACT_SETTLE_LIMIT = 500;
+
+    private final int vertexCount;
+    private final long graphChecksum;
+    private final int[] ranks;
+
+    // Upward graph: edges u -> x with rank[x] > rank[u], stored at u. Weights are long
+    // because a shortcut sums the weights of the edges it skips.
+    final int[] upOffsets;
+    final int[] upTargets;
+    final long[] upWeights;
+    final int[] upMiddles;  // Contracted vertex a shortcut skips, -1 for original edges
+
+    // Downward graph: edges u -> x with rank[u] > rank[x], stored reversed at x
+    final int[] downOffsets;
+    final int[] downTargets;
+    final long[] downWeights;
+    final int[] downMiddles;
+
+    private ContractionHierarchy(int vertexCount, long graphChecksum, int[] ranks,
+                                 int[] upOffsets, int[] upTargets, long[] upWeights, int[] upMiddles,
+                                 int[] downOffsets, int[] downTargets, long[] downWeights, int[] downMiddles) {
+        this.vertexCount = vertexCount;
+        this.graphChecksum = graphChecksum;
+        this.ranks = ranks;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downTargets = downTargets;
+        this.downWeights = downWeights;
+        this.downMiddles = downMiddles;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int rank(int v) {
+        return ranks[v];
+    }
+
+    public int shortcutCount() {
+        int shortcuts = 0;
+        for (int middle : upMiddles) {
+            if (middle != -1) {
+                shortcuts++;
+            }
+        }
+        for (int middle : downMiddles) {
+            if (middle != -1) {
+                shortcuts++;
+            }
+        }
+        return shortcuts;
+    }
+
+    // True if this hierarchy was built from exactly the given graph
+    public boolean matches(CsrGraph graph) {
+        return graph.vertexCount() == vertexCount && graph.checksum() == graphChecksum;
+    }
+
+    public static ContractionHierarchy build(CsrGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(graphChecksum);
+            out.writeInt(vertexCount);
+            writeArray(out, ranks);
+            writeArray(out, upOffsets);
+            writeArray(out, upTargets);
+            writeArray(out, upWeights);
+            writeArray(out, upMiddles);
+            writeArray(out, downOffsets);
+            writeArray(out, downTargets);
+            writeArray(out, downWeights);
+            writeArray(out, downMiddles);
+        }
+    }
+
+    // Loads a hierarchy saved for this graph, or returns null if the file is
+    // missing, in another format or was built from a different graph version
+    public static ContractionHierarchy load(String filename, CsrGraph graph) throws IOException {
+        File file = new File(filename);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long checksum = in.readLong();
+            int vertexCount = in.readInt();
+            if (vertexCount != graph.vertexCount() || checksum != graph.checksum()) {
+                return null;
+            }
+            int[] ranks = readArray(in);
+            return new ContractionHierarchy(vertexCount, checksum, ranks,
+                    readArray(in), readArray(in), readLongArray(in), readArray(in),
+                    readArray(in), readArray(in), readLongArray(in), readArray(in));
+        }
+    }
+
+    private static void writeArray(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int value : array) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeArray(DataOutputStream out, long[] array) throws IOException {
+        out.writeInt(array.length);
+        for (long value : array) {
+            out.writeLong(value);
+        }
+    }
+
+    private static int[] readArray(DataInputStream in) throws IOException {
+        int[] array = new int[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readInt();
+        }
+        return array;
+    }
+
+    private static long[] readLongArray(DataInputStream in) throws IOException {
+        long[] array = new long[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readLong();
+        }
+        return array;
+    }
+
+    // Mutable adjacency used only while contracting. The lists only hold edges between
+    // vertices that are not contracted yet; contracting a vertex moves its remaining
+    // edges into the finished upward or downward edge buffers.
+    private static class Builder {
+        private final CsrGraph graph;
+        private final int n;
+
+        private final int[][] outTargets;
+        private final long[][] outWeights;
+        private final int[][] outMiddles;
+        private final int[] outSizes;
+        private final int[][] inSources;
+        private final long[][] inWeights;
+        private final int[][] inMiddles;
+        private final int[] inSizes;
+
+        private final int[] contractedNeighbors;
+        private final int[] levels; // Depth in the hierarchy built so far
+        private final int[] ranks;
+        private final EdgeBuffer up = new EdgeBuffer();
+        private final EdgeBuffer down = new EdgeBuffer();
+
+        // Witness search state, reused through epoch stamps
+        private final IntMinHeap witnessHeap;
+        private final long[] witnessDistances;
+        private final int[] witnessStamps;
+        private int epoch;
+
+        Builder(CsrGraph graph) {
+            this.graph = graph;
+            n = graph.vertexCount();
+            outTargets = new int[n][];
+            outWeights = new long[n][];
+            outMiddles = new int[n][];
+            outSizes = new int[n];
+            inSources = new int[n][];
+            inWeights = new long[n][];
+            inMiddles = new int[n][];
+            inSizes = new int[n];
+            contractedNeighbors = new int[n];
+            levels = new int[n];
+            ranks = new int[n];
+            witnessHeap = new IntMinHeap(n);
+            witnessDistances = new long[n];
+            witnessStamps = new int[n];
+
+            for (int v = 0; v < n; v++) {
+                int degree = Math.max(graph.degree(v), 2);
+                outTargets[v] = new int[degree];
+                outWeights[v] = new long[degree];
+                outMiddles[v] = new int[degree];
+                inSources[v] = new int[2];
+                inWeights[v] = new long[2];
+                inMiddles[v] = new int[2];
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+                    if (graph.weight(e) < 0) {
+                        throw new IllegalArgumentException("Contraction requires non-negative edge weights");
+                    }
+                    if (graph.target(e) != v) {
+                        addOrImprove(v, graph.target(e), graph.weight(e), -1);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy build() {
+            IntMinHeap order = new IntMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.insertOrDecrease(v, priority(v));
+            }
+
+            int rank = 0;
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                // Lazy update: priorities of remaining vertices go stale as neighbors are contracted
+                long current = priority(v);
+                if (!order.isEmpty() && current > order.peekKey()) {
+                    order.insertOrDecrease(v, current);
+                    continue;
+                }
+                ranks[v] = rank++;
+                contract(v);
+            }
+
+            int[] upOffsets = up.sortByOwner(n);
+            int[] downOffsets = down.sortByOwner(n);
+            return new ContractionHierarchy(n, graph.checksum(), ranks,
+                    upOffsets, up.targets, up.weights, up.middles,
+                    downOffsets, down.targets, down.weights, down.middles);
+        }
+
+        // Weighted edge difference plus contracted neighbors and hierarchy depth, which
+        // spread contraction evenly over the graph instead of growing one dense core
+        private long priority(int v) {
+            return 2L * (shortcutsFor(v, false) - inSizes[v] - outSizes[v]) + contractedNeighbors[v] + levels[v];
+        }
+
+        private void contract(int v) {
+            shortcutsFor(v, true);
+
+            // Every remaining neighbor is contracted later, so it ranks higher than v
+            for (int i = 0; i < outSizes[v]; i++) {
+                int x = outTargets[v][i];
+                up.add(v, x, outWeights[v][i], outMiddles[v][i]);
+                removeIn(x, v);
+                contractedNeighbors[x]++;
+                levels[x] = Math.max(levels[x], levels[v] + 1);
+            }
+            for (int i = 0; i < inSizes[v]; i++) {
+                int u = inSources[v][i];
+                down.add(v, u, inWeights[v][i], inMiddles[v][i]);
+                removeOut(u, v);
+                contractedNeighbors[u]++;
+                levels[u] = Math.max(levels[u], levels[v] + 1);
+            }
+            outSizes[v] = 0;
+            inSizes[v] = 0;
+        }
+
+        // Counts (and optionally adds) the shortcuts u -> x needed when v is removed
+        private int shortcutsFor(int v, boolean add) {
+            int shortcuts = 0;
+            for (int i = 0; i < inSizes[v]; i++) {
+                int u = inSources[v][i];
+                long toV = inWeights[v][i];
+
+                long limit = 0;
+                for (int j = 0; j < outSizes[v]; j++) {
+                    if (outTargets[v][j] != u) {
+                        limit = Math.max(limit, toV + outWeights[v][j]);
+                    }
+                }
+                witnessSearch(u, v, limit, add ? CONTRACT_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+
+                for (int j = 0; j < outSizes[v]; j++) {
+                    int x = outTargets[v][j];
+                    if (x == u) {
+                        continue;
+                    }
+                    long viaV = toV + outWeights[v][j];
+                    if (witnessStamps[x] != epoch || witnessDistances[x] > viaV) {
+                        shortcuts++;
+                        if (add) {
+                            addOrImprove(u, x, viaV, v);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        // Bounded Dijkstra from u that avoids v; a missed witness only costs an extra shortcut
+        private void witnessSearch(int u, int v, long limit, int settleLimit) {
+            if (++epoch == 0) {
+                Arrays.fill(witnessStamps, 0);
+                epoch = 1;
+            }
+            witnessHeap.clear();
+            witnessStamps[u] = epoch;
+            witnessDistances[u] = 0;
+            witnessHeap.insertOrDecrease(u, 0);
+
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled++ < settleLimit) {
+                int current = witnessHeap.poll();
+                long base = witnessDistances[current];
+                if (base > limit) {
+                    break;
+                }
+                for (int i = 0; i < outSizes[current]; i++) {
+                    int next = outTargets[current][i];
+                    if (next == v) {
+                        continue;
+                    }
+                    long candidate = base + outWeights[current][i];
+                    if (witnessStamps[next] != epoch || candidate < witnessDistances[next]) {
+                        witnessStamps[next] = epoch;
+                        witnessDistances[next] = candidate;
+                        witnessHeap.insertOrDecrease(next, candidate);
+                    }
+                }
+            }
+            witnessHeap.clear();
+        }
+
+        private void addOrImprove(int from, int to, long weight, int middle) {
+            for (int i = 0; i < outSizes[from]; i++) {
+                if (outTargets[from][i] == to) {
+                    if (weight < outWeights[from][i]) {
+                        outWeights[from][i] = weight;
+                        outMiddles[from][i] = middle;
+                        for (int j = 0; j < inSizes[to]; j++) {
+                            if (inSources[to][j] == from) {
+                                inWeights[to][j] = weight;
+                                inMiddles[to][j] = middle;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+
+            if (outSizes[from] == outTargets[from].length) {
+                int capacity = outTargets[from].length << 1;
+                outTargets[from] = Arrays.copyOf(outTargets[from], capacity);
+                outWeights[from] = Arrays.copyOf(outWeights[from], capacity);
+                outMiddles[from] = Arrays.copyOf(outMiddles[from], capacity);
+            }
+            outTargets[from][outSizes[from]] = to;
+            outWeights[from][outSizes[from]] = weight;
+            outMiddles[from][outSizes[from]++] = middle;
+
+            if (inSizes[to] == inSources[to].length) {
+                int capacity = inSources[to].length << 1;
+                inSources[to] = Arrays.copyOf(inSources[to], capacity);
+                inWeights[to] = Arrays.copyOf(inWeights[to], capacity);
+                inMiddles[to] = Arrays.copyOf(inMiddles[to], capacity);
+            }
+            inSources[to][inSizes[to]] = from;
+            inWeights[to][inSizes[to]] = weight;
+            inMiddles[to][inSizes[to]++] = middle;
+        }
+
+        // Swap-removes the edge from -> to from the out-list of from
+        private void removeOut(int from, int to) {
+            for (int i = 0; i < outSizes[from]; i++) {
+                if (outTargets[from][i] == to) {
+                    int last = --outSizes[from];
+                    outTargets[from][i] = outTargets[from][last];
+                    outWeights[from][i] = outWeights[from][last];
+                    outMiddles[from][i] = outMiddles[from][last];
+                    return;
+                }
+            }
+        }
+
+        // Swap-removes the edge from -> to from the in-list of to
+        private void removeIn(int to, int from) {
+            for (int i = 0; i < inSizes[to]; i++) {
+                if (inSources[to][i] == from) {
+                    int last = --inSizes[to];
+                    inSources[to][i] = inSources[to][last];
+                    inWeights[to][i] = inWeights[to][last];
+                    inMiddles[to][i] = inMiddles[to][last];
+                    return;
+                }
+            }
+        }
+    }
+
+    // Finished hierarchy edges, grouped into CSR order by their lower-ranked endpoint
+    private static class EdgeBuffer {
+        private int[] owners = new int[16];
+        int[] targets = new int[16];
+        long[] weights = new long[16];
+        int[] middles = new int[16];
+        private int size;
+
+        void add(int owner, int target, long weight, int middle) {
+            if (size == owners.length) {
+                int capacity = size << 1;
+                owners = Arrays.copyOf(owners, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                middles = Arrays.copyOf(middles, capacity);
+            }
+            owners[size] = owner;
+            targets[size] = target;
+            weights[size] = weight;
+            middles[size++] = middle;
+        }
+
+        // Regroups the buffered edges by owner and returns the CSR offsets
+        int[] sortByOwner(int n) {
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[owners[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] sortedTargets = new int[size];
+            long[] sortedWeights = new long[size];
+            int[] sortedMiddles = new int[size];
+            for (int i = 0; i < size; i++) {
+                int slot = next[owners[i]]++;
+                sortedTargets[slot] = targets[i];
+                sortedWeights[slot] = weights[i];
+                sortedMiddles[slot] = middles[i];
+            }
+            targets = sortedTargets;
+            weights = sortedWeights;
+            middles = sortedMiddles;
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+// Compares contraction hierarchy queries with plain Dijkstra on a synthetic grid.
+// Usage: java ContractionHierarchyBenchmark [side] [queries]
+public class ContractionHierarchyBenchmark {
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        CsrGraph graph = GraphGenerator.grid(side, side, 10, 42);
+        System.out.println("Graph: " + graph.vertexCount() + " vertices, " + graph.edgeCount() + " edges");
+
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        System.out.printf("Preprocessing: %.1f ms, %d shortcuts%n", (System.nanoTime() - start) / 1e6, hierarchy.shortcutCount());
+
+        File file = File.createTempFile("city-ch", ".bin");
+        file.deleteOnExit();
+        start = System.nanoTime();
+        hierarchy.save(file.getPath());
+        ContractionHierarchy loaded = ContractionHierarchy.load(file.getPath(), graph);
+        System.out.printf("Save + load: %.1f ms (%d bytes)%n", (System.nanoTime() - start) / 1e6, file.length());
+
+        Random random = new Random(7);
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(graph.vertexCount());
+            targets[i] = random.nextInt(graph.vertexCount());
+        }
+
+        ShortestPathEngine dijkstra = new ShortestPathEngine(graph);
+        ContractionHierarchyQuery query = new ContractionHierarchyQuery(loaded);
+        long[] expected = new long[queries];
+
+        // Warm up both paths before timing
+        for (int round = 0; round < 2; round++) {
+            long dijkstraNanos = 0;
+            long hierarchyNanos = 0;
+            long dijkstraSettled = 0;
+            long hierarchySettled = 0;
+
+            for (int i = 0; i < queries; i++) {
+                long t0 = System.nanoTime();
+                expected[i] = dijkstra.distance(sources[i], targets[i]);
+                dijkstraNanos += System.nanoTime() - t0;
+                dijkstraSettled += dijkstra.settledCount();
+            }
+            for (int i = 0; i < queries; i++) {
+                long t0 = System.nanoTime();
+                long distance = query.distance(sources[i], targets[i]);
+                hierarchyNanos += System.nanoTime() - t0;
+                hierarchySettled += query.settledCount();
+                if (distance != expected[i]) {
+                    throw new IllegalStateException("Mismatch for query " + i + ": " + distance + " != " + expected[i]);
+                }
+            }
+
+            if (round == 1) {
+                System.out.printf("Dijkstra: %.1f us/query, %d settled/query%n", dijkstraNanos / 1e3 / queries, dijkstraSettled / queries);
+                System.out.printf("CH:       %.1f us/query, %d settled/query%n", hierarchyNanos / 1e3 / queries, hierarchySettled / queries);
+                System.out.printf("Speedup:  %.1fx%n", (double) dijkstraNanos / hierarchyNanos);
+            }
+        }
+    }
+}
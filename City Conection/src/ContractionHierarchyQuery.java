@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+// Bidirectional upward search over a ContractionHierarchy. Holds reusable
+// per-query state, so each thread should use its own instance; setHierarchy
+// moves it to another hierarchy, keeping the arrays, which only grow.
+public class ContractionHierarchyQuery {
+    private ContractionHierarchy hierarchy;
+    private IntMinHeap forwardHeap;
+    private IntMinHeap backwardHeap;
+    private long[] forwardDistances;
+    private long[] backwardDistances;
+    private int[] forwardParentEdges;  // Slot in the upward graph, -1 at the source
+    private int[] backwardParentEdges; // Slot in the downward graph, -1 at the target
+    private int[] forwardParents;
+    private int[] backwardParents;
+    private int[] forwardStamps;
+    private int[] backwardStamps;
+    private int epoch;
+
+    private int source = -1;
+    private int target = -1;
+    private int meeting = -1;
+    private int settledCount;
+    private long relaxedCount;
+
+    public ContractionHierarchyQuery(ContractionHierarchy hierarchy) {
+        setHierarchy(hierarchy);
+    }
+
+    // Answers later queries with hierarchy, such as one built for a newer graph version
+    public void setHierarchy(ContractionHierarchy hierarchy) {
+        int n = hierarchy.vertexCount();
+        if (forwardStamps == null || forwardStamps.length < n) {
+            int capacity = forwardStamps == null ? n : Math.max(n, forwardStamps.length + (forwardStamps.length >> 1));
+            forwardHeap = new IntMinHeap(capacity);
+            backwardHeap = new IntMinHeap(capacity);
+            forwardDistances = new long[capacity];
+            backwardDistances = new long[capacity];
+            forwardParentEdges = new int[capacity];
+            backwardParentEdges = new int[capacity];
+            forwardParents = new int[capacity];
+            backwardParents = new int[capacity];
+            forwardStamps = new int[capacity];
+            backwardStamps = new int[capacity];
+        }
+        this.hierarchy = hierarchy;
+        meeting = -1; // Forget the last route; the next query starts a new epoch
+    }
+
+    public ContractionHierarchy hierarchy() {
+        return hierarchy;
+    }
+
+    // Returns the weighted distance from source to target, or -1 if unreachable
+    public long distance(int source, int target) {
+        if (++epoch == 0) {
+            Arrays.fill(forwardStamps, 0);
+            Arrays.fill(backwardStamps, 0);
+            epoch = 1;
+        }
+        forwardHeap.clear();
+        backwardHeap.clear();
+        this.source = source;
+        this.target = target;
+        meeting = -1;
+        settledCount = 0;
+        relaxedCount = 0;
+
+        reach(forwardStamps, forwardDistances, forwardParents, forwardParentEdges, forwardHeap, source, 0, source, -1);
+        reach(backwardStamps, backwardDistances, backwardParents, backwardParentEdges, backwardHeap, target, 0, target, -1);
+        long best = Long.MAX_VALUE;
+        if (source == target) {
+            best = 0;
+            meeting = source;
+        }
+
+        // Unlike plain bidirectional Dijkstra, each side runs until its own frontier passes best
+        while (true) {
+            boolean forwardOpen = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+            boolean backwardOpen = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+
+            boolean forwardStep = forwardOpen && (!backwardOpen || forwardHeap.peekKey() <= backwardHeap.peekKey());
+            if (forwardStep) {
+                int current = forwardHeap.poll();
+                settledCount++;
+                best = relax(current, hierarchy.upOffsets, hierarchy.upTargets, hierarchy.upWeights,
+                        forwardStamps, forwardDistances, forwardParents, forwardParentEdges, forwardHeap,
+                        backwardStamps, backwardDistances, best);
+            } else {
+                int current = backwardHeap.poll();
+                settledCount++;
+                best = relax(current, hierarchy.downOffsets, hierarchy.downTargets, hierarchy.downWeights,
+                        backwardStamps, backwardDistances, backwardParents, backwardParentEdges, backwardHeap,
+                        forwardStamps, forwardDistances, best);
+            }
+        }
+
+        return best == Long.MAX_VALUE ? -1 : best;
+    }
+
+    // Number of vertices settled by the last query
+    public int settledCount() {
+        return settledCount;
+    }
+
+    // Number of hierarchy edges relaxed by the last query
+    public long relaxedCount() {
+        return relaxedCount;
+    }
+
+    // Vertices of the last route with every shortcut expanded, from source to target
+    public int[] route() {
+        if (meeting == -1) {
+            return new int[0];
+        }
+
+        IntStack vertices = new IntStack();
+        vertices.push(source);
+
+        // Hierarchy edges from the source up to the meeting vertex, collected backwards
+        IntStack upEdges = new IntStack();
+        for (int v = meeting; v != source; v = forwardParents[v]) {
+            upEdges.push(forwardParentEdges[v]);
+        }
+        int from = source;
+        for (int i = upEdges.size() - 1; i >= 0; i--) {
+            int edge = upEdges.get(i);
+            int to = hierarchy.upTargets[edge];
+            unpack(from, to, hierarchy.upMiddles[edge], vertices);
+            from = to;
+        }
+
+        for (int v = meeting; v != target; v = backwardParents[v]) {
+            int edge = backwardParentEdges[v];
+            int to = backwardParents[v];
+            unpack(v, to, hierarchy.downMiddles[edge], vertices);
+        }
+        return vertices.toArray();
+    }
+
+    // Appends the original vertices of edge from -> to (excluding from), expanding shortcuts
+    private void unpack(int from, int to, int middle, IntStack out) {
+        IntStack pending = new IntStack(); // Stack of (from, to, middle) triples
+        pending.push(from);
+        pending.push(to);
+        pending.push(middle);
+
+        while (!pending.isEmpty()) {
+            int mid = pending.pop();
+            int b = pending.pop();
+            int a = pending.pop();
+            if (mid == -1) {
+                out.push(b);
+                continue;
+            }
+            // Both halves are stored at the skipped vertex: a -> mid downward, mid -> b upward.
+            // Push the second half first so the first half is expanded first.
+            pending.push(mid);
+            pending.push(b);
+            pending.push(findMiddle(hierarchy.upOffsets, hierarchy.upTargets, hierarchy.upMiddles, mid, b));
+            pending.push(a);
+            pending.push(mid);
+            pending.push(findMiddle(hierarchy.downOffsets, hierarchy.downTargets, hierarchy.downMiddles, mid, a));
+        }
+    }
+
+    private static int findMiddle(int[] offsets, int[] targets, int[] middles, int at, int other) {
+        for (int e = offsets[at], last = offsets[at + 1]; e < last; e++) {
+            if (targets[e] == other) {
+                return middles[e];
+            }
+        }
+        throw new IllegalStateException("Shortcut half not found in hierarchy");
+    }
+
+    private long relax(int current, int[] offsets, int[] targets, long[] weights,
+                       int[] stamps, long[] distances, int[] parents, int[] parentEdges, IntMinHeap heap,
+                       int[] otherStamps, long[] otherDistances, long best) {
+        long base = distances[current];
+        if (otherStamps[current] == epoch && base + otherDistances[current] < best) {
+            best = base + otherDistances[current];
+            meeting = current;
+        }
+
+        relaxedCount += offsets[current + 1] - offsets[current];
+        for (int e = offsets[current], last = offsets[current + 1]; e < last; e++) {
+            int neighbor = targets[e];
+            long candidate = base + weights[e];
+            if (stamps[neighbor] == epoch && candidate >= distances[neighbor]) {
+                continue;
+            }
+            reach(stamps, distances, parents, parentEdges, heap, neighbor, candidate, current, e);
+            if (otherStamps[neighbor] == epoch && candidate + otherDistances[neighbor] < best) {
+                best = candidate + otherDistances[neighbor];
+                meeting = neighbor;
+            }
+        }
+        return best;
+    }
+
+    private void reach(int[] stamps, long[] distances, int[] parents, int[] parentEdges, IntMinHeap heap,
+                       int v, long distance, int parent, int edge) {
+        stamps[v] = epoch;
+        distances[v] = distance;
+        parents[v] = parent;
+        parentEdges[v] = edge;
+        heap.insertOrDecrease(v, distance);
+    }
+}
@@ -0,0 +1,271 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Immutable Compressed Sparse Row graph: the out-edges of vertex v are the
+// slots offsets[v] .. offsets[v + 1] - 1 of the targets and weights arrays.
+//
+// A version published by a DynamicGraph is paged instead: rows sit anywhere in
+// targets and weights, and the start and end of each row come from pages of
+// PAGE_SIZE vertices, so consecutive versions share every page they do not change.
+//
+// A graph opened from a GraphSnapshot is mapped: it has the packed layout, but the
+// three arrays are MappedIntArrays over the file rather than heap arrays.
+public class CsrGraph {
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int vertexCount;
+    private final int edgeCount;
+    final int[] offsets; // Null when paged or mapped
+    private final int[][] beginPages;
+    private final int[][] endPages;
+    final int[] targets; // Null when mapped
+    final int[] weights;
+    private final MappedIntArray mappedOffsets; // Null unless mapped
+    private final MappedIntArray mappedTargets;
+    private final MappedIntArray mappedWeights;
+    private volatile int negativeWeights = -1; // 1 if some edge weighs less than 0, -1 until known
+
+    CsrGraph(int vertexCount, int[] offsets, int[] targets, int[] weights) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = offsets[vertexCount];
+        this.offsets = offsets;
+        this.beginPages = null;
+        this.endPages = null;
+        this.targets = targets;
+        this.weights = weights;
+        this.mappedOffsets = null;
+        this.mappedTargets = null;
+        this.mappedWeights = null;
+    }
+
+    // Row v spans beginPages[p][i] .. endPages[p][i] - 1 where p = v / PAGE_SIZE, i = v % PAGE_SIZE
+    CsrGraph(int vertexCount, int[][] beginPages, int[][] endPages, int[] targets, int[] weights, int edgeCount) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.offsets = null;
+        this.beginPages = beginPages;
+        this.endPages = endPages;
+        this.targets = targets;
+        this.weights = weights;
+        this.mappedOffsets = null;
+        this.mappedTargets = null;
+        this.mappedWeights = null;
+    }
+
+    // Packed rows read from the mapped arrays of a snapshot, see GraphSnapshot
+    CsrGraph(int vertexCount, MappedIntArray offsets, MappedIntArray targets, MappedIntArray weights) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = offsets.get(vertexCount);
+        this.offsets = null;
+        this.beginPages = null;
+        this.endPages = null;
+        this.targets = null;
+        this.weights = null;
+        this.mappedOffsets = offsets;
+        this.mappedTargets = targets;
+        this.mappedWeights = weights;
+    }
+
+    public static CsrGraph empty() {
+        return new CsrGraph(0, new int[1], new int[0], new int[0]);
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    // True when the rows are stored back to back, so offsets, targets and weights
+    // are exactly the CSR arrays
+    public boolean isPacked() {
+        return offsets != null;
+    }
+
+    // True when the arrays are mapped from a snapshot file rather than on the heap
+    public boolean isMapped() {
+        return mappedOffsets != null;
+    }
+
+    // This graph if it is packed on the heap, otherwise a packed heap copy
+    public CsrGraph packed() {
+        return isPacked() ? this : copy();
+    }
+
+    // Packed heap copy that shares no arrays with this graph
+    public CsrGraph copy() {
+        int[] packedOffsets = new int[vertexCount + 1];
+        int[] packedTargets = new int[edgeCount];
+        int[] packedWeights = new int[edgeCount];
+        if (isMapped()) {
+            mappedOffsets.copyTo(0, packedOffsets, 0, vertexCount + 1);
+            mappedTargets.copyTo(0, packedTargets, 0, edgeCount);
+            mappedWeights.copyTo(0, packedWeights, 0, edgeCount);
+            return new CsrGraph(vertexCount, packedOffsets, packedTargets, packedWeights);
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            int begin = begin(v);
+            int degree = end(v) - begin;
+            System.arraycopy(targets, begin, packedTargets, packedOffsets[v], degree);
+            System.arraycopy(weights, begin, packedWeights, packedOffsets[v], degree);
+            packedOffsets[v + 1] = packedOffsets[v] + degree;
+        }
+        return new CsrGraph(vertexCount, packedOffsets, packedTargets, packedWeights);
+    }
+
+    // First edge slot of vertex v
+    public int begin(int v) {
+        if (offsets != null) {
+            return offsets[v];
+        }
+        return beginPages != null ? beginPages[v >>> PAGE_SHIFT][v & PAGE_MASK] : mappedOffsets.get(v);
+    }
+
+    // One past the last edge slot of vertex v
+    public int end(int v) {
+        if (offsets != null) {
+            return offsets[v + 1];
+        }
+        return endPages != null ? endPages[v >>> PAGE_SHIFT][v & PAGE_MASK] : mappedOffsets.get(v + 1);
+    }
+
+    public int degree(int v) {
+        return end(v) - begin(v);
+    }
+
+    // True if some edge has a negative weight; scanned once, then remembered
+    public boolean hasNegativeWeight() {
+        int known = negativeWeights;
+        if (known == -1) {
+            known = 0;
+            for (int v = 0; v < vertexCount && known == 0; v++) {
+                for (int e = begin(v), end = end(v); e < end; e++) {
+                    if (weight(e) < 0) {
+                        known = 1;
+                        break;
+                    }
+                }
+            }
+            negativeWeights = known; // Threads that race here all find the same answer
+        }
+        return known == 1;
+    }
+
+    public int target(int edge) {
+        return targets != null ? targets[edge] : mappedTargets.get(edge);
+    }
+
+    public int weight(int edge) {
+        return weights != null ? weights[edge] : mappedWeights.get(edge);
+    }
+
+    // Returns the first edge slot from -> to in insertion order, or -1
+    public int findEdge(int from, int to) {
+        for (int e = begin(from), end = end(from); e < end; e++) {
+            if (target(e) == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    // Builds the transposed graph, whose out-edges are this graph's in-edges.
+    // Sources are visited in id order, so each reversed row is sorted by source.
+    public CsrGraph reverse() {
+        int[] reverseOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = begin(v), end = end(v); e < end; e++) {
+                reverseOffsets[target(e) + 1]++;
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        }
+
+        int[] next = Arrays.copyOf(reverseOffsets, vertexCount);
+        int[] reverseTargets = new int[edgeCount];
+        int[] reverseWeights = new int[edgeCount];
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = begin(v), end = end(v); e < end; e++) {
+                int slot = next[target(e)]++;
+                reverseTargets[slot] = v;
+                reverseWeights[slot] = weight(e);
+            }
+        }
+
+        return new CsrGraph(vertexCount, reverseOffsets, reverseTargets, reverseWeights);
+    }
+
+    // Copies every edge into the builder so a reload can extend this graph
+    public void appendTo(GraphBuilder builder) {
+        builder.ensureVertexCount(vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = begin(v), end = end(v); e < end; e++) {
+                builder.addEdge(v, target(e), weight(e));
+            }
+        }
+    }
+
+    // CRC32 over the vertex count and packed edge arrays, used to tie derived files to one graph version.
+    // The arrays are read row by row, so paged and mapped graphs are not copied first.
+    public long checksum() {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        buffer.putInt(vertexCount);
+        int offset = 0;
+        putChecksummed(crc, buffer, offset);
+        for (int v = 0; v < vertexCount; v++) {
+            offset += degree(v);
+            putChecksummed(crc, buffer, offset);
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = begin(v), end = end(v); e < end; e++) {
+                putChecksummed(crc, buffer, target(e));
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = begin(v), end = end(v); e < end; e++) {
+                putChecksummed(crc, buffer, weight(e));
+            }
+        }
+        buffer.flip();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    private static void putChecksummed(CRC32 crc, ByteBuffer buffer, int value) {
+        if (!buffer.hasRemaining()) {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+        }
+        buffer.putInt(value);
+    }
+
+    // Approximate heap footprint of the edge arrays in bytes; mapped arrays live outside the heap.
+    // A paged version shares its edge arrays, spare row capacity included, and its unchanged
+    // pages with the other versions of its DynamicGraph, so this is an upper bound on what
+    // the version adds: it counts everything the version keeps reachable.
+    public long sizeInBytes() {
+        if (isMapped()) {
+            return 0;
+        }
+        long rowIndex;
+        if (isPacked()) {
+            rowIndex = offsets.length;
+        } else {
+            rowIndex = 2L * beginPages.length; // The page tables
+            for (int page = 0; page < beginPages.length; page++) {
+                if (beginPages[page] != null) { // Tables have room for pages not yet added
+                    rowIndex += 2L * PAGE_SIZE;
+                }
+            }
+        }
+        return 4L * (rowIndex + targets.length + weights.length);
+    }
+}
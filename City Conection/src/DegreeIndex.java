@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+// Out- and in-degree of every vertex, each kept in a bucketed order: the vertices
+// sorted by descending degree, with the start of every degree's run recorded. An
+// edge moves its endpoints one bucket up or down by swapping each with the vertex at
+// the boundary of its bucket, so updates cost O(1), and the k highest-degree vertices
+// are simply the first k of the order. Degree 0 comes last, so new vertices are
+// appended without moving any other.
+public class DegreeIndex {
+    private final Buckets out;
+    private final Buckets in;
+
+    private DegreeIndex(Buckets out, Buckets in) {
+        this.out = out;
+        this.in = in;
+    }
+
+    public static DegreeIndex build(CsrGraph graph) {
+        int vertexCount = graph.vertexCount();
+        int[] outDegrees = new int[vertexCount];
+        int[] inDegrees = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            outDegrees[v] = graph.degree(v);
+            for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+                inDegrees[graph.target(e)]++;
+            }
+        }
+        return new DegreeIndex(new Buckets(outDegrees), new Buckets(inDegrees));
+    }
+
+    public int vertexCount() {
+        return out.size;
+    }
+
+    // Adds isolated vertices up to count
+    public void extend(int count) {
+        while (out.size < count) {
+            out.addVertex();
+            in.addVertex();
+        }
+    }
+
+    // Records a new edge from -> to, adding vertices as needed
+    public void addEdge(int from, int to) {
+        extend(Math.max(from, to) + 1);
+        out.increment(from);
+        in.increment(to);
+    }
+
+    // Records that count edges from -> to were removed
+    public void removeEdges(int from, int to, int count) {
+        for (int i = 0; i < count; i++) {
+            out.decrement(from);
+            in.decrement(to);
+        }
+    }
+
+    public int outDegree(int v) {
+        return out.degrees[v];
+    }
+
+    public int inDegree(int v) {
+        return in.degrees[v];
+    }
+
+    public int maxOutDegree() {
+        return out.maxDegree;
+    }
+
+    public int maxInDegree() {
+        return in.maxDegree;
+    }
+
+    // Vertex with the rank-th highest out-degree, rank 0 being the highest; ties in no particular order
+    public int byOutDegree(int rank) {
+        return out.order[rank];
+    }
+
+    public int byInDegree(int rank) {
+        return in.order[rank];
+    }
+
+    // Every vertex whose out-degree is maxOutDegree(), in ascending id order
+    public int[] withMaxOutDegree() {
+        return out.highest();
+    }
+
+    public int[] withMaxInDegree() {
+        return in.highest();
+    }
+
+    // distribution[d] is the number of vertices with out-degree d
+    public int[] outDegreeDistribution() {
+        return out.distribution();
+    }
+
+    public int[] inDegreeDistribution() {
+        return in.distribution();
+    }
+
+    private static class Buckets {
+        private int[] degrees;
+        private int[] order;     // Vertices by descending degree
+        private int[] positions; // Index of each vertex in order
+        private int[] starts;    // First index of each degree in order; degree d ends where d - 1 starts
+        private int size;
+        private int maxDegree;
+
+        // Counting sort by degree
+        Buckets(int[] degrees) {
+            size = degrees.length;
+            this.degrees = Arrays.copyOf(degrees, Math.max(size, 16)); // Room for added vertices
+            for (int degree : degrees) {
+                maxDegree = Math.max(maxDegree, degree);
+            }
+            int[] counts = new int[maxDegree + 1];
+            for (int degree : degrees) {
+                counts[degree]++;
+            }
+            starts = new int[Math.max(maxDegree + 1, 16)];
+            for (int d = maxDegree - 1; d >= 0; d--) {
+                starts[d] = starts[d + 1] + counts[d + 1];
+            }
+
+            order = new int[this.degrees.length];
+            positions = new int[order.length];
+            int[] next = Arrays.copyOf(starts, maxDegree + 1);
+            for (int v = 0; v < size; v++) {
+                int position = next[degrees[v]]++;
+                order[position] = v;
+                positions[v] = position;
+            }
+        }
+
+        // Appends a vertex of degree 0, which ends up at the end of bucket 0
+        void addVertex() {
+            int v = size;
+            if (size == order.length) {
+                order = Arrays.copyOf(order, size << 1);
+                positions = Arrays.copyOf(positions, size << 1);
+                degrees = Arrays.copyOf(degrees, size << 1);
+            }
+            order[size] = v;
+            positions[v] = size;
+            degrees[v] = 0;
+            size++;
+        }
+
+        // Swaps v with the first vertex of its bucket, which then becomes the last of the next
+        void increment(int v) {
+            int d = degrees[v];
+            if (d == maxDegree) {
+                maxDegree++;
+                if (maxDegree == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length << 1);
+                }
+                starts[maxDegree] = 0;
+            }
+            swap(v, order[starts[d]]);
+            starts[d]++;
+            degrees[v]++;
+        }
+
+        // Swaps v with the last vertex of its bucket, which then becomes the first of the previous
+        void decrement(int v) {
+            int d = degrees[v];
+            swap(v, order[end(d) - 1]);
+            starts[d - 1]--;
+            degrees[v]--;
+            while (maxDegree > 0 && end(maxDegree) == 0) {
+                maxDegree--;
+            }
+        }
+
+        // One past the last index of degree d in order
+        private int end(int d) {
+            return d == 0 ? size : starts[d - 1];
+        }
+
+        int[] highest() {
+            int[] vertices = Arrays.copyOfRange(order, 0, end(maxDegree));
+            Arrays.sort(vertices);
+            return vertices;
+        }
+
+        int[] distribution() {
+            int[] counts = new int[maxDegree + 1];
+            for (int d = 0; d <= maxDegree; d++) {
+                counts[d] = end(d) - starts[d];
+            }
+            return counts;
+        }
+
+        private void swap(int u, int v) {
+            int pu = positions[u];
+            int pv = positions[v];
+            order[pu] = v;
+            order[pv] = u;
+            positions[u] = pv;
+            positions[v] = pu;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Editable graph that publishes immutable versions: readers take current() and keep
+// that version for as long as they like, never seeing half of an update and never
+// waiting for the writer.
+//
+// Rows live in targets and weights arrays that only the writer changes, and it never
+// writes a slot that a published version can read. Each row owns a run of slots,
+// possibly with spare capacity after its edges; appending writes past the row's
+// published end, and any other change copies the row to fresh slots at the end of
+// the arrays (with twice the room when it grows). Row starts and ends are kept in
+// pages of CsrGraph.PAGE_SIZE vertices, and a page is copied the first time it
+// changes after a publish, so a new version costs the rows and pages it touched plus
+// the page table. Abandoned runs are reclaimed by compacting into new arrays once
+// they fill half the slots; published versions keep the old ones.
+//
+// Edges keep their insertion order within a row, as in a graph built from a file.
+// Rows are indexed by source; the sources of each vertex's in-edges are collected
+// when clearInEdges first needs them and maintained by every update after that.
+// The update methods are synchronized for a single writer at a time; their effect
+// becomes visible to readers through publish().
+public class DynamicGraph {
+    private static final int MIN_ROW_CAPACITY = 4;
+    private static final int MIN_COMPACT_SLOTS = 1 << 12;
+
+    private final AtomicReference<CsrGraph> current = new AtomicReference<>();
+
+    // Draft state, owned by the writer
+    private int vertexCount;
+    private int edgeCount;
+    private int[][] beginPages;
+    private int[][] endPages;
+    private boolean[] pageShared; // Referenced by a published version, so copied before writing
+    private int[] capacities;
+    private int[] targets;
+    private int[] weights;
+    private int used;    // Slots handed out to rows so far
+    private int garbage; // Slots in runs abandoned by moved rows
+
+    // Sources of the edges into each vertex, one entry per edge, in no particular order.
+    // Built by the first clearInEdges and kept up to date from then on; null until then.
+    private int[][] inSources;
+    private int[] inCounts;
+
+    // Starts from the rows of graph without spare capacity and publishes them
+    public DynamicGraph(CsrGraph graph) {
+        CsrGraph packed = graph.packed();
+        vertexCount = packed.vertexCount();
+        edgeCount = packed.edgeCount();
+        int pageCount = Math.max((vertexCount + CsrGraph.PAGE_SIZE - 1) >>> CsrGraph.PAGE_SHIFT, 1);
+        beginPages = new int[pageCount][CsrGraph.PAGE_SIZE];
+        endPages = new int[pageCount][CsrGraph.PAGE_SIZE];
+        pageShared = new boolean[pageCount];
+        capacities = new int[pageCount << CsrGraph.PAGE_SHIFT];
+        for (int v = 0; v < vertexCount; v++) {
+            beginPages[v >>> CsrGraph.PAGE_SHIFT][v & CsrGraph.PAGE_MASK] = packed.begin(v);
+            endPages[v >>> CsrGraph.PAGE_SHIFT][v & CsrGraph.PAGE_MASK] = packed.end(v);
+            capacities[v] = packed.degree(v);
+        }
+        targets = Arrays.copyOf(packed.targets, Math.max(edgeCount, 16));
+        weights = Arrays.copyOf(packed.weights, targets.length);
+        used = edgeCount;
+        publish();
+    }
+
+    // The latest published version; safe to call from any thread
+    public CsrGraph current() {
+        return current.get();
+    }
+
+    // Makes every update since the last publish visible at once and returns the new version
+    public synchronized CsrGraph publish() {
+        CsrGraph version = new CsrGraph(vertexCount, beginPages.clone(), endPages.clone(), targets, weights, edgeCount);
+        Arrays.fill(pageShared, true);
+        current.set(version);
+        return version;
+    }
+
+    public synchronized int vertexCount() {
+        return vertexCount;
+    }
+
+    public synchronized int edgeCount() {
+        return edgeCount;
+    }
+
+    // Adds an isolated vertex and returns its id
+    public synchronized int addVertex() {
+        int v = vertexCount;
+        int page = v >>> CsrGraph.PAGE_SHIFT;
+        if (page == beginPages.length) {
+            beginPages = Arrays.copyOf(beginPages, page << 1);
+            endPages = Arrays.copyOf(endPages, page << 1);
+            pageShared = Arrays.copyOf(pageShared, page << 1);
+            capacities = Arrays.copyOf(capacities, (page << 1) << CsrGraph.PAGE_SHIFT);
+        }
+        if (beginPages[page] == null) {
+            beginPages[page] = new int[CsrGraph.PAGE_SIZE];
+            endPages[page] = new int[CsrGraph.PAGE_SIZE];
+        }
+        vertexCount++;
+        setRow(v, used, used);
+        capacities[v] = 0;
+        if (inSources != null && v == inSources.length) {
+            inSources = Arrays.copyOf(inSources, v << 1);
+            inCounts = Arrays.copyOf(inCounts, v << 1);
+        }
+        return v;
+    }
+
+    // Appends from -> to after the existing out-edges of from
+    public synchronized void addEdge(int from, int to, int weight) {
+        checkVertex(from);
+        checkVertex(to);
+        if (end(from) - begin(from) == capacities[from]) {
+            moveRow(from, Math.max(MIN_ROW_CAPACITY, capacities[from] << 1), -1);
+        }
+        int slot = end(from);
+        targets[slot] = to;
+        weights[slot] = weight;
+        setRow(from, begin(from), slot + 1);
+        edgeCount++;
+        if (inSources != null) {
+            addSource(to, from);
+        }
+    }
+
+    // Removes every edge from -> to and returns how many there were
+    public synchronized int removeEdges(int from, int to) {
+        checkVertex(from);
+        int removed = count(from, to);
+        if (removed > 0) {
+            moveRow(from, capacities[from], to);
+            edgeCount -= removed;
+            if (inSources != null) {
+                removeSources(to, from, removed);
+            }
+        }
+        return removed;
+    }
+
+    // Sets the weight of every edge from -> to and returns how many there were
+    public synchronized int setWeight(int from, int to, int weight) {
+        checkVertex(from);
+        int changed = count(from, to);
+        if (changed > 0) {
+            moveRow(from, capacities[from], -1); // Fresh slots, so the weights can change in place
+            for (int e = begin(from), end = end(from); e < end; e++) {
+                if (targets[e] == to) {
+                    weights[e] = weight;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Removes every out-edge of v and returns their targets, one per edge
+    public synchronized int[] clearOutEdges(int v) {
+        checkVertex(v);
+        int[] removed = Arrays.copyOfRange(targets, begin(v), end(v));
+        if (inSources != null) {
+            for (int target : removed) {
+                removeSources(target, v, 1);
+            }
+        }
+        edgeCount -= removed.length;
+        garbage += capacities[v];
+        setRow(v, used, used);
+        capacities[v] = 0;
+        return removed;
+    }
+
+    // Removes every edge into v and returns their sources, one per edge. Only the rows
+    // of those sources are visited; the first call scans every edge once to collect
+    // the sources of each vertex.
+    public synchronized int[] clearInEdges(int v) {
+        checkVertex(v);
+        if (inSources == null) {
+            buildInSources();
+        }
+        int[] removed = inCounts[v] == 0 ? new int[0] : Arrays.copyOf(inSources[v], inCounts[v]);
+        for (int source : removed) {
+            removeEdges(source, v); // A no-op for the repeats of a source with parallel edges
+        }
+        return removed;
+    }
+
+    private int begin(int v) {
+        return beginPages[v >>> CsrGraph.PAGE_SHIFT][v & CsrGraph.PAGE_MASK];
+    }
+
+    private int end(int v) {
+        return endPages[v >>> CsrGraph.PAGE_SHIFT][v & CsrGraph.PAGE_MASK];
+    }
+
+    // Writes the row bounds of v, first copying its pages if a published version shares them
+    private void setRow(int v, int begin, int end) {
+        int page = v >>> CsrGraph.PAGE_SHIFT;
+        if (pageShared[page]) {
+            beginPages[page] = beginPages[page].clone();
+            endPages[page] = endPages[page].clone();
+            pageShared[page] = false;
+        }
+        beginPages[page][v & CsrGraph.PAGE_MASK] = begin;
+        endPages[page][v & CsrGraph.PAGE_MASK] = end;
+    }
+
+    private void buildInSources() {
+        inSources = new int[capacities.length][];
+        inCounts = new int[capacities.length];
+        for (int u = 0; u < vertexCount; u++) {
+            for (int e = begin(u), end = end(u); e < end; e++) {
+                inCounts[targets[e]]++;
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            inSources[v] = new int[inCounts[v]];
+            inCounts[v] = 0;
+        }
+        for (int u = 0; u < vertexCount; u++) {
+            for (int e = begin(u), end = end(u); e < end; e++) {
+                inSources[targets[e]][inCounts[targets[e]]++] = u;
+            }
+        }
+    }
+
+    private void addSource(int v, int source) {
+        int[] sources = inSources[v];
+        if (sources == null || inCounts[v] == sources.length) {
+            inSources[v] = sources = Arrays.copyOf(sources != null ? sources : new int[0], Math.max(4, inCounts[v] << 1));
+        }
+        sources[inCounts[v]++] = source;
+    }
+
+    // Swap-removes count entries of source from the in-edge sources of v
+    private void removeSources(int v, int source, int count) {
+        int[] sources = inSources[v];
+        for (int i = inCounts[v] - 1; i >= 0 && count > 0; i--) {
+            if (sources[i] == source) {
+                sources[i] = sources[--inCounts[v]];
+                count--;
+            }
+        }
+    }
+
+    private int count(int from, int to) {
+        int count = 0;
+        for (int e = begin(from), end = end(from); e < end; e++) {
+            if (targets[e] == to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= vertexCount) {
+            throw new IndexOutOfBoundsException("Vertex " + v + " out of range 0.." + (vertexCount - 1));
+        }
+    }
+
+    // Copies row v to fresh slots at the end of the arrays, leaving out edges to skip (-1 keeps all)
+    private void moveRow(int v, int capacity, int skip) {
+        if (garbage >= MIN_COMPACT_SLOTS && garbage > used >> 1) {
+            compact();
+        }
+        if (used + capacity > targets.length) {
+            int length = Math.max(used + capacity, targets.length + (targets.length >> 1));
+            targets = Arrays.copyOf(targets, length);
+            weights = Arrays.copyOf(weights, length);
+        }
+
+        int next = used;
+        for (int e = begin(v), end = end(v); e < end; e++) {
+            if (targets[e] != skip) {
+                targets[next] = targets[e];
+                weights[next] = weights[e];
+                next++;
+            }
+        }
+        garbage += capacities[v];
+        setRow(v, used, next);
+        capacities[v] = capacity;
+        used += capacity;
+    }
+
+    // Lays the rows out again in vertex order in new arrays, each keeping its capacity
+    private void compact() {
+        long slots = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            slots += capacities[v];
+        }
+        int length = (int) Math.min(Math.max(slots + (slots >> 2), 16), Integer.MAX_VALUE - 8);
+        int[] newTargets = new int[length];
+        int[] newWeights = new int[length];
+
+        int next = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int begin = begin(v);
+            int degree = end(v) - begin;
+            System.arraycopy(targets, begin, newTargets, next, degree);
+            System.arraycopy(weights, begin, newWeights, next, degree);
+            setRow(v, next, next + degree);
+            next += capacities[v];
+        }
+
+        targets = newTargets;
+        weights = newWeights;
+        used = next;
+        garbage = 0;
+    }
+}
@@ -0,0 +1,61 @@
+// Immutable snapshot of a loaded City: the city names, their index and the CSR
+// graph, plus the contraction hierarchy when one was built. All fields are final
+// and never written after construction, so any number of threads may read a
+// FrozenGraph without locking.
+public class FrozenGraph {
+    private final String[] names;
+    private final StringIntMap indices;
+    private final CsrGraph graph;
+    private final ContractionHierarchy hierarchy; // Null when none was built
+
+    // Copies names[0 .. V), where V is the graph's vertex count
+    FrozenGraph(String[] names, CsrGraph graph, ContractionHierarchy hierarchy) {
+        int vertexCount = graph.vertexCount();
+        this.names = new String[vertexCount];
+        this.indices = new StringIntMap(vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            this.names[v] = names[v];
+            if (names[v] != null) { // Null for a removed city
+                indices.put(names[v], v);
+            }
+        }
+        this.graph = graph;
+        this.hierarchy = hierarchy != null && hierarchy.vertexCount() == vertexCount ? hierarchy : null;
+    }
+
+    private FrozenGraph(String[] names, StringIntMap indices, CsrGraph graph, ContractionHierarchy hierarchy) {
+        this.names = names;
+        this.indices = indices;
+        this.graph = graph;
+        this.hierarchy = hierarchy != null && hierarchy.vertexCount() == graph.vertexCount() ? hierarchy : null;
+    }
+
+    // Another version of the same cities: shares the names and their index with this one
+    FrozenGraph withGraph(CsrGraph newGraph, ContractionHierarchy newHierarchy) {
+        if (newGraph.vertexCount() != names.length) {
+            throw new IllegalArgumentException("Graph has " + newGraph.vertexCount() + " vertices, expected " + names.length);
+        }
+        return new FrozenGraph(names, indices, newGraph, newHierarchy);
+    }
+
+    public int vertexCount() {
+        return graph.vertexCount();
+    }
+
+    // Vertex id of the city, or -1 if it is not in the graph
+    public int indexOf(String name) {
+        return indices.getOrDefault(name, -1);
+    }
+
+    public String name(int v) {
+        return names[v];
+    }
+
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    public ContractionHierarchy hierarchy() {
+        return hierarchy;
+    }
+}
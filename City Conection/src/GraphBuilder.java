@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+// Collects edges in primitive arrays while loading and freezes them into a CsrGraph
+public class GraphBuilder {
+    private int vertexCount;
+    private int edgeCount;
+    private int[] sources;
+    private int[] targets;
+    private int[] weights;
+
+    public GraphBuilder() {
+        this(16);
+    }
+
+    public GraphBuilder(int expectedEdges) {
+        int capacity = Math.max(expectedEdges, 16);
+        sources = new int[capacity];
+        targets = new int[capacity];
+        weights = new int[capacity];
+    }
+
+    public void ensureVertexCount(int count) {
+        if (count > vertexCount) {
+            vertexCount = count;
+        }
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    // Endpoints of the i-th edge added, in insertion order
+    public int source(int i) {
+        return sources[i];
+    }
+
+    public int target(int i) {
+        return targets[i];
+    }
+
+    public void addEdge(int from, int to, int weight) {
+        if (edgeCount == sources.length) {
+            grow(sources.length << 1);
+        }
+        sources[edgeCount] = from;
+        targets[edgeCount] = to;
+        weights[edgeCount] = weight;
+        edgeCount++;
+        ensureVertexCount(Math.max(from, to) + 1);
+    }
+
+    // Appends every edge of other, keeping their order
+    public void addAll(GraphBuilder other) {
+        if (edgeCount + other.edgeCount > sources.length) {
+            grow(Math.max(sources.length << 1, edgeCount + other.edgeCount));
+        }
+        System.arraycopy(other.sources, 0, sources, edgeCount, other.edgeCount);
+        System.arraycopy(other.targets, 0, targets, edgeCount, other.edgeCount);
+        System.arraycopy(other.weights, 0, weights, edgeCount, other.edgeCount);
+        edgeCount += other.edgeCount;
+        ensureVertexCount(other.vertexCount);
+    }
+
+    // Rewrites every endpoint v as mapping[v], e.g. from chunk-local to global vertex ids
+    public void remapVertices(int[] mapping) {
+        int maxVertex = -1;
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = mapping[sources[i]];
+            targets[i] = mapping[targets[i]];
+            maxVertex = Math.max(maxVertex, Math.max(sources[i], targets[i]));
+        }
+        vertexCount = maxVertex + 1;
+    }
+
+    private void grow(int capacity) {
+        sources = Arrays.copyOf(sources, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+    }
+
+    // Stable counting sort by source, so each vertex keeps its edges in insertion order
+    public CsrGraph build() {
+        int[] offsets = new int[vertexCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] next = Arrays.copyOf(offsets, vertexCount);
+        int[] csrTargets = new int[edgeCount];
+        int[] csrWeights = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            int slot = next[sources[i]]++;
+            csrTargets[slot] = targets[i];
+            csrWeights[slot] = weights[i];
+        }
+
+        return new CsrGraph(vertexCount, offsets, csrTargets, csrWeights);
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Applies a delta file of graph updates, one per line, in order:
+//
+//   + A                  add city A
+//   - A                  remove city A and its roads
+//   + A -> B: 3, C: 2    add roads, same syntax as the graph file
+//   - A -> B, C          remove every road from A to B and from A to C
+//   = A -> B: 7, C: 1    change the weight of the roads from A to B and C
+//   # anything           comment
+//
+// Blank lines are skipped; any other line is reported and skipped.
+public class GraphDelta {
+    private static final String ARROW = " -> ";
+
+    public static void apply(String filename, City city) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!applyLine(line, city)) {
+                    System.out.println("Invalid line format: " + line);
+                }
+            }
+        }
+    }
+
+    private static boolean applyLine(String line, City city) {
+        if (line.length() < 3 || line.charAt(1) != ' ') {
+            return false;
+        }
+        char operation = line.charAt(0);
+        String body = line.substring(2);
+
+        int arrow = body.indexOf(ARROW);
+        if (arrow == -1) {
+            switch (operation) {
+                case '+' -> city.addCity(body);
+                case '-' -> city.removeCity(body);
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String from = body.substring(0, arrow);
+        String[] targets = body.substring(arrow + ARROW.length()).split(", ");
+        if (operation == '-') {
+            for (String to : targets) {
+                city.removeEdge(from, to);
+            }
+            return true;
+        }
+        if (operation != '+' && operation != '=') {
+            return false;
+        }
+
+        // Validate the whole line before applying any of it
+        String[] names = new String[targets.length];
+        int[] weights = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            String[] parts = targets[i].split(": ");
+            if (parts.length != 2) {
+                return false;
+            }
+            try {
+                weights[i] = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            names[i] = parts[0];
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (operation == '+') {
+                city.addEdge(from, names[i], weights[i]);
+            } else {
+                city.changeEdgeWeight(from, names[i], weights[i]);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// Synthetic graphs for benchmarks: road-like grids and geometric graphs, and
+// power-law graphs with a few large hubs
+public class GraphGenerator {
+
+    // width x height grid with two-way streets and random weights in [1, maxWeight]
+    public static CsrGraph grid(int width, int height, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder(4 * width * height);
+        builder.ensureVertexCount(width * height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = y * width + x;
+                if (x + 1 < width) {
+                    int weight = 1 + random.nextInt(maxWeight);
+                    builder.addEdge(v, v + 1, weight);
+                    builder.addEdge(v + 1, v, weight);
+                }
+                if (y + 1 < height) {
+                    int weight = 1 + random.nextInt(maxWeight);
+                    builder.addEdge(v, v + width, weight);
+                    builder.addEdge(v + width, v, weight);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // vertexCount random points in the unit square, with a two-way street between every two
+    // points closer than the radius that gives averageDegree neighbours on average. Weights
+    // grow with the distance, from 1 to maxWeight.
+    public static CsrGraph randomGeometric(int vertexCount, double averageDegree, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        double[] xs = new double[vertexCount];
+        double[] ys = new double[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            xs[v] = random.nextDouble();
+            ys[v] = random.nextDouble();
+        }
+        double radius = Math.sqrt(averageDegree / (Math.PI * Math.max(vertexCount, 1)));
+
+        // Bucket the points into square cells of side >= radius, so neighbours are in adjacent cells
+        int side = Math.max(1, Math.min((int) (1 / radius), (int) Math.ceil(Math.sqrt(vertexCount))));
+        int[] cellStarts = new int[side * side + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            cellStarts[cell(xs[v], ys[v], side) + 1]++;
+        }
+        for (int c = 0; c < side * side; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+        int[] next = cellStarts.clone();
+        int[] points = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            points[next[cell(xs[v], ys[v], side)]++] = v;
+        }
+
+        GraphBuilder builder = new GraphBuilder((int) Math.min(Integer.MAX_VALUE - 8, (long) (vertexCount * averageDegree * 1.1)));
+        builder.ensureVertexCount(vertexCount);
+        for (int u = 0; u < vertexCount; u++) {
+            int cx = Math.min((int) (xs[u] * side), side - 1);
+            int cy = Math.min((int) (ys[u] * side), side - 1);
+            for (int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, side - 1); y++) {
+                for (int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, side - 1); x++) {
+                    int c = y * side + x;
+                    for (int i = cellStarts[c]; i < cellStarts[c + 1]; i++) {
+                        int v = points[i];
+                        double distance = Math.hypot(xs[u] - xs[v], ys[u] - ys[v]);
+                        if (v > u && distance < radius) {
+                            int weight = 1 + (int) (distance / radius * (maxWeight - 1));
+                            builder.addEdge(u, v, weight);
+                            builder.addEdge(v, u, weight);
+                        }
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static int cell(double x, double y, int side) {
+        return Math.min((int) (y * side), side - 1) * side + Math.min((int) (x * side), side - 1);
+    }
+
+    // Preferential attachment (Barabasi-Albert): each new vertex links to edgesPerVertex
+    // earlier ones picked with probability proportional to their degree, giving a few hubs
+    // and a power-law degree distribution. Links are two-way with random weights.
+    public static CsrGraph powerLaw(int vertexCount, int edgesPerVertex, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder((int) Math.min(Integer.MAX_VALUE - 8, 2L * vertexCount * edgesPerVertex));
+        builder.ensureVertexCount(vertexCount);
+
+        // Every edge endpoint so far; a uniform pick from it is a degree-weighted pick of a vertex
+        IntStack endpoints = new IntStack((int) Math.min(Integer.MAX_VALUE - 8, 2L * vertexCount * edgesPerVertex + 1));
+        endpoints.push(0);
+        for (int v = 1; v < vertexCount; v++) {
+            int links = Math.min(edgesPerVertex, v);
+            int size = endpoints.size();
+            for (int i = 0; i < links; i++) {
+                int u = endpoints.get(random.nextInt(size));
+                int weight = 1 + random.nextInt(maxWeight);
+                builder.addEdge(v, u, weight);
+                builder.addEdge(u, v, weight);
+                endpoints.push(u);
+                endpoints.push(v);
+            }
+        }
+        return builder.build();
+    }
+
+    // Name given to vertex v by write
+    public static String vertexName(int v) {
+        return "C" + v;
+    }
+
+    // Writes graph in the format readGraphFromFile reads, one line per vertex with
+    // out-edges. Vertices without any edge do not appear in the file.
+    public static void write(CsrGraph graph, String filename) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                if (graph.degree(v) == 0) {
+                    continue;
+                }
+                line.setLength(0);
+                line.append(vertexName(v)).append(" -> ");
+                for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+                    if (e > graph.begin(v)) {
+                        line.append(", ");
+                    }
+                    line.append(vertexName(graph.target(e))).append(": ").append(graph.weight(e));
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+}
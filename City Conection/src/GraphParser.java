@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Byte-level parser for the "A -> B: 3, C: 2" graph format. Lines are tokenized
+// in place in a large read buffer; names reach the Sink as byte ranges, so the
+// Sink decides when a String is worth creating.
+public class GraphParser {
+    private static final int BUFFER_SIZE = 1 << 22;
+    private static final byte[] ARROW = {' ', '-', '>', ' '};
+
+    // Receives the parsed graph; vertex returns the id of the name in buffer[offset, offset + length).
+    // Line numbers start at 1 with the first line this parser was given.
+    public interface Sink {
+        int vertex(byte[] buffer, int offset, int length);
+
+        void edge(int from, int to, int weight);
+
+        void invalidLine(int lineNumber, byte[] buffer, int offset, int length);
+    }
+
+    private final Sink sink;
+    private int lineCount; // Lines parsed so far
+
+    // Tokens of the line being parsed, reused across lines
+    private int[] nameOffsets = new int[16];
+    private int[] nameLengths = new int[16];
+    private int[] weights = new int[16];
+
+    public GraphParser(Sink sink) {
+        this.sink = sink;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    // Streams the file through one reusable buffer that grows only for lines longer than it
+    public void parse(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(channel.size(), 16))];
+            int filled = 0;
+            boolean endOfFile = false;
+
+            while (!endOfFile) {
+                ByteBuffer window = ByteBuffer.wrap(buffer, filled, buffer.length - filled);
+                int read = channel.read(window);
+                if (read == -1) {
+                    endOfFile = true;
+                } else {
+                    filled += read;
+                    if (filled < buffer.length) {
+                        continue; // Fill the buffer before scanning it
+                    }
+                }
+
+                int consumed = endOfFile ? filled : lastLineEnd(buffer, filled);
+                if (consumed == 0 && !endOfFile) {
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1); // Single line longer than the buffer
+                    continue;
+                }
+                parseLines(buffer, 0, consumed);
+                System.arraycopy(buffer, consumed, buffer, 0, filled - consumed);
+                filled -= consumed;
+            }
+        }
+    }
+
+    // Parses the lines in buffer[from, to); the last line may lack its newline
+    public void parseLines(byte[] buffer, int from, int to) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            lineCount++;
+            parseLine(buffer, lineStart, contentEnd);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    // Offset just past the last '\n' in buffer[0, length), or 0 if there is none
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Accepts the same lines as the old String.split based reader: exactly one " -> ",
+    // then ", " separated "name: weight" pairs. Lines with a negative weight are rejected
+    // too, since every shortest path mode needs non-negative weights.
+    private void parseLine(byte[] buffer, int start, int end) {
+        int arrow = indexOf(buffer, start, end, ARROW);
+        int edgesStart = arrow + ARROW.length;
+        if (arrow == -1 || edgesStart >= end || indexOf(buffer, edgesStart, end, ARROW) != -1) {
+            sink.invalidLine(lineCount, buffer, start, end - start);
+            return;
+        }
+
+        int edgeCount = 0;
+        int pieceStart = edgesStart;
+        while (pieceStart < end) {
+            int pieceEnd = pieceStart;
+            while (pieceEnd < end && !(buffer[pieceEnd] == ',' && pieceEnd + 1 < end && buffer[pieceEnd + 1] == ' ')) {
+                pieceEnd++;
+            }
+
+            int colon = pieceStart;
+            while (colon < pieceEnd && !(buffer[colon] == ':' && colon + 1 < pieceEnd && buffer[colon + 1] == ' ')) {
+                colon++;
+            }
+            long weight = colon < pieceEnd ? parseWeight(buffer, colon + 2, pieceEnd) : Long.MIN_VALUE;
+            if (weight == Long.MIN_VALUE || weight < 0) {
+                sink.invalidLine(lineCount, buffer, start, end - start);
+                return;
+            }
+
+            if (edgeCount == weights.length) {
+                nameOffsets = Arrays.copyOf(nameOffsets, edgeCount << 1);
+                nameLengths = Arrays.copyOf(nameLengths, edgeCount << 1);
+                weights = Arrays.copyOf(weights, edgeCount << 1);
+            }
+            nameOffsets[edgeCount] = pieceStart;
+            nameLengths[edgeCount] = colon - pieceStart;
+            weights[edgeCount++] = (int) weight;
+
+            pieceStart = pieceEnd + 2;
+        }
+
+        int from = sink.vertex(buffer, start, arrow - start);
+        for (int i = 0; i < edgeCount; i++) {
+            sink.edge(from, sink.vertex(buffer, nameOffsets[i], nameLengths[i]), weights[i]);
+        }
+    }
+
+    // Parses an optionally signed int, or returns Long.MIN_VALUE if the text is not one
+    private static long parseWeight(byte[] buffer, int start, int end) {
+        boolean negative = false;
+        if (start < end && (buffer[start] == '-' || buffer[start] == '+')) {
+            negative = buffer[start] == '-';
+            start++;
+        }
+        if (start == end) {
+            return Long.MIN_VALUE;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    private static int indexOf(byte[] buffer, int start, int end, byte[] pattern) {
+        outer:
+        for (int i = start; i <= end - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
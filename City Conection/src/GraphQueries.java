@@ -0,0 +1,417 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Thread-safe queries over a FrozenGraph that return results instead of printing.
+// The graph is only read; every piece of mutable search state lives in per-thread
+// workspaces and engines, so any number of threads may call in without locking.
+public class GraphQueries {
+    // Like TraversalWorkspace, each thread has one engine of each kind for every
+    // GraphQueries, pointed at the graph of the query it runs. A new graph version thus
+    // reuses the thread's arrays, and a thread keeps at most one old version reachable.
+    private static final ThreadLocal<ShortestPathEngine> ENGINES = new ThreadLocal<>();
+    private static final ThreadLocal<ContractionHierarchyQuery> HIERARCHY_QUERIES = new ThreadLocal<>();
+    private static final ThreadLocal<PathCounter> PATH_COUNTERS = new ThreadLocal<>();
+
+    private final FrozenGraph frozen; // Null for a view over its owner's live graph
+    private final CsrGraph graph;
+    private final String[] names;
+    private final ContractionHierarchy hierarchy; // Null unless built for this graph
+    private final ParallelBfs parallelBfs;
+    private volatile AdjacencyIndex adjacency; // Built on the first lookup that needs it
+    private volatile DegreeIndex degrees;      // Likewise
+
+    public GraphQueries(FrozenGraph frozen) {
+        this(frozen, frozen.graph(), null, frozen.hierarchy());
+    }
+
+    // Queries by vertex id over a graph its owner may still change; used by City for its
+    // own single-threaded calls, so an update does not have to copy the graph
+    static GraphQueries overLiveGraph(CsrGraph graph, String[] names, ContractionHierarchy hierarchy) {
+        return new GraphQueries(null, graph, names, hierarchy);
+    }
+
+    private GraphQueries(FrozenGraph frozen, CsrGraph graph, String[] names, ContractionHierarchy hierarchy) {
+        this.frozen = frozen;
+        this.graph = graph;
+        this.names = names;
+        this.hierarchy = hierarchy != null && hierarchy.vertexCount() == graph.vertexCount() ? hierarchy : null;
+        parallelBfs = graph.vertexCount() >= ParallelBfs.MIN_PARALLEL_VERTICES ? new ParallelBfs(graph) : null;
+    }
+
+    public FrozenGraph frozenGraph() {
+        return frozen;
+    }
+
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // Depth-first search; found() tells whether there is a path at all
+    public PathResult isThereAPath(String from, String to) {
+        return dfs(require(from), require(to));
+    }
+
+    public PathResult bfsPath(String from, String to) {
+        return bfs(require(from), require(to));
+    }
+
+    public PathResult dfsPath(String from, String to) {
+        return dfs(require(from), require(to));
+    }
+
+    // Minimum-weight path, through the contraction hierarchy when the graph has one
+    public PathResult shortestPath(String from, String to) {
+        return shortestPath(require(from), require(to));
+    }
+
+    // matrix[i][j] is the distance from sources[i] to targets[j], or -1 if unreachable.
+    // Each source is one search that stops once every target is settled; sources run
+    // in parallel, each on its thread's engine.
+    public long[][] distanceMatrix(List<String> sources, List<String> targets) {
+        int[] from = new int[sources.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = require(sources.get(i));
+        }
+        int[] to = new int[targets.size()];
+        for (int j = 0; j < to.length; j++) {
+            to[j] = require(targets.get(j));
+        }
+
+        long[][] matrix = new long[from.length][to.length];
+        IntStream.range(0, from.length).parallel()
+                .forEach(i -> engine().distancesTo(from[i], to, matrix[i]));
+        return matrix;
+    }
+
+    public List<String> neighbors(String city) {
+        int v = require(city);
+        List<String> neighbors = new ArrayList<>(graph.degree(v));
+        for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+            neighbors.add(name(graph.target(e)));
+        }
+        return neighbors;
+    }
+
+    public boolean areTheyAdjacent(String from, String to) {
+        return adjacency().hasEdge(require(from), require(to));
+    }
+
+    // Cities with an edge into city, one per edge, in load order
+    public List<String> predecessors(String city) {
+        int[] sources = adjacency().predecessors(require(city));
+        List<String> predecessors = new ArrayList<>(sources.length);
+        for (int source : sources) {
+            predecessors.add(name(source));
+        }
+        return predecessors;
+    }
+
+    // Simple paths with at most maxLength edges, enumerating at most maxPaths of them
+    public PathCounter.Result numberOfSimplePaths(String from, String to, int maxLength, long maxPaths) {
+        return pathCounter().count(require(from), require(to), maxLength, maxPaths);
+    }
+
+    // Cities with the most outgoing edges, in load order
+    public List<String> highestDegree() {
+        DegreeIndex index = degrees;
+        if (index == null) {
+            index = DegreeIndex.build(graph);
+            degrees = index; // Only read once built, so either copy will do
+        }
+        List<String> cities = new ArrayList<>();
+        for (int v : index.withMaxOutDegree()) {
+            if (name(v) != null) { // Removed cities keep degree 0
+                cities.add(name(v));
+            }
+        }
+        return cities;
+    }
+
+    // True if some edge has no edge back
+    public boolean isDirected() {
+        return !adjacency().isSymmetric();
+    }
+
+    // This thread's engine, moved to this graph
+    private ShortestPathEngine engine() {
+        ShortestPathEngine engine = ENGINES.get();
+        if (engine == null) {
+            engine = new ShortestPathEngine(graph);
+            ENGINES.set(engine);
+        } else if (engine.graph() != graph) {
+            engine.setGraph(graph);
+        }
+        return engine;
+    }
+
+    private ContractionHierarchyQuery hierarchyQuery() {
+        ContractionHierarchyQuery query = HIERARCHY_QUERIES.get();
+        if (query == null) {
+            query = new ContractionHierarchyQuery(hierarchy);
+            HIERARCHY_QUERIES.set(query);
+        } else if (query.hierarchy() != hierarchy) {
+            query.setHierarchy(hierarchy);
+        }
+        return query;
+    }
+
+    // The counter reuses the reverse graph of the shared adjacency index
+    private PathCounter pathCounter() {
+        PathCounter counter = PATH_COUNTERS.get();
+        if (counter == null) {
+            counter = new PathCounter(graph, adjacency().in());
+            PATH_COUNTERS.set(counter);
+        } else if (counter.graph() != graph) {
+            counter.setGraph(graph, adjacency().in());
+        }
+        return counter;
+    }
+
+    private AdjacencyIndex adjacency() {
+        AdjacencyIndex index = adjacency;
+        if (index == null) {
+            index = AdjacencyIndex.build(graph);
+            adjacency = index; // Two threads may both build it; either copy will do
+        }
+        return index;
+    }
+
+    public boolean isThereACycle(String city) {
+        return hasCycle(require(city));
+    }
+
+    public int numberOfVerticesInComponent(String city) {
+        return componentSize(require(city));
+    }
+
+    // Fewest edges on any path, or -1 if there is none
+    public int hopDistance(String from, String to) {
+        return hopDistance(require(from), require(to));
+    }
+
+    private String name(int v) {
+        return names != null ? names[v] : frozen.name(v);
+    }
+
+    private int require(String city) {
+        int v = frozen != null ? frozen.indexOf(city) : -1;
+        if (v == -1) {
+            throw new IllegalArgumentException("City not found: " + city);
+        }
+        return v;
+    }
+
+    // Path from the first depth-first branch that reaches end; edges are tried in insertion order
+    PathResult dfs(int start, int end) {
+        TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.vertexCount());
+        IntStack vertices = workspace.vertices();
+        IntStack cursors = workspace.cursors();
+        workspace.visit(start);
+        int visitedCount = 1;
+        if (start == end) {
+            return dfsResult(start, cursors, 0, visitedCount);
+        }
+        pushFrame(workspace, start);
+
+        while (!vertices.isEmpty()) {
+            int depth = vertices.size() - 1;
+            int current = vertices.peek();
+            int e = cursors.peek();
+            if (e == graph.end(current)) {
+                popFrame(workspace);
+                continue;
+            }
+            cursors.set(depth, e + 1);
+
+            int neighbor = graph.target(e);
+            if (workspace.visit(neighbor)) {
+                visitedCount++;
+                if (neighbor == end) {
+                    return dfsResult(start, cursors, depth + 1, visitedCount);
+                }
+                pushFrame(workspace, neighbor);
+            }
+        }
+
+        return PathResult.notFound(visitedCount);
+    }
+
+    // One frame of the explicit DFS stack: a vertex and the next edge slot to try
+    private void pushFrame(TraversalWorkspace workspace, int vertex) {
+        workspace.vertices().push(vertex);
+        workspace.cursors().push(graph.begin(vertex));
+    }
+
+    private void popFrame(TraversalWorkspace workspace) {
+        workspace.vertices().pop();
+        workspace.cursors().pop();
+    }
+
+    // Each frame's cursor is one past the edge slot the path takes from it
+    private PathResult dfsResult(int start, IntStack cursors, int hops, int visitedCount) {
+        List<String> cities = new ArrayList<>(hops + 1);
+        int[] weights = new int[hops];
+        long length = 0;
+        cities.add(name(start));
+        for (int i = 0; i < hops; i++) {
+            int edge = cursors.get(i) - 1;
+            cities.add(name(graph.target(edge)));
+            weights[i] = graph.weight(edge);
+            length += weights[i];
+        }
+        return new PathResult(cities, weights, length, visitedCount);
+    }
+
+    // Path with the fewest edges; each hop uses the first edge between its two cities
+    PathResult bfs(int start, int end) {
+        TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.vertexCount());
+        IntQueue queue = workspace.queue();
+        queue.add(start);
+        workspace.visit(start);
+        workspace.setParent(start, -1);
+        int visitedCount = 1;
+
+        while (!queue.isEmpty()) {
+            int current = queue.remove();
+            if (current == end) {
+                return bfsResult(start, end, workspace, visitedCount);
+            }
+
+            for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                int neighbor = graph.target(e);
+                if (workspace.visit(neighbor)) {
+                    visitedCount++;
+                    queue.add(neighbor);
+                    workspace.setParent(neighbor, current);
+                }
+            }
+        }
+
+        return PathResult.notFound(visitedCount);
+    }
+
+    private PathResult bfsResult(int start, int end, TraversalWorkspace workspace, int visitedCount) {
+        int hops = 0;
+        for (int v = end; v != start; v = workspace.parent(v)) {
+            hops++;
+        }
+        String[] cities = new String[hops + 1];
+        int[] weights = new int[hops];
+        long length = 0;
+        cities[0] = name(start);
+        for (int v = end, i = hops; i > 0; v = workspace.parent(v), i--) {
+            int parent = workspace.parent(v);
+            cities[i] = name(v);
+            weights[i - 1] = graph.weight(graph.findEdge(parent, v));
+            length += weights[i - 1];
+        }
+        return new PathResult(List.of(cities), weights, length, visitedCount);
+    }
+
+    PathResult shortestPath(int start, int end) {
+        int[] route;
+        int settled;
+        if (hierarchy != null) {
+            ContractionHierarchyQuery query = hierarchyQuery();
+            query.distance(start, end);
+            route = query.route();
+            settled = query.settledCount();
+        } else {
+            ShortestPathEngine engine = engine();
+            engine.distance(start, end);
+            route = engine.route();
+            settled = engine.settledCount();
+        }
+        if (route.length == 0) {
+            return PathResult.notFound(settled);
+        }
+
+        List<String> cities = new ArrayList<>(route.length);
+        int[] weights = new int[route.length - 1];
+        long length = 0;
+        cities.add(name(route[0]));
+        for (int i = 1; i < route.length; i++) {
+            cities.add(name(route[i]));
+            weights[i - 1] = lightestEdge(route[i - 1], route[i]);
+            length += weights[i - 1];
+        }
+        return new PathResult(cities, weights, length, settled);
+    }
+
+    // Weight of the cheapest of the parallel edges from -> to, which a shortest path always uses
+    private int lightestEdge(int from, int to) {
+        int lightest = Integer.MAX_VALUE;
+        for (int e = graph.begin(from), last = graph.end(from); e < last; e++) {
+            if (graph.target(e) == to) {
+                lightest = Math.min(lightest, graph.weight(e));
+            }
+        }
+        return lightest;
+    }
+
+    // True if a depth-first search from start finds an edge back into start that
+    // does not just retrace the edge it arrived by
+    boolean hasCycle(int start) {
+        TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.vertexCount());
+        IntStack vertices = workspace.vertices();
+        IntStack cursors = workspace.cursors();
+        workspace.visit(start);
+        pushFrame(workspace, start);
+
+        while (!vertices.isEmpty()) {
+            int depth = vertices.size() - 1;
+            int current = vertices.peek();
+            int e = cursors.peek();
+            if (e == graph.end(current)) {
+                popFrame(workspace);
+                continue;
+            }
+            cursors.set(depth, e + 1);
+
+            int neighbor = graph.target(e);
+            int parent = depth > 0 ? vertices.get(depth - 1) : -1; // The frame below is the parent
+            if (workspace.visit(neighbor)) {
+                pushFrame(workspace, neighbor);
+            } else if (neighbor == start && neighbor != parent) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Large graphs are searched level by level on all cores
+    int hopDistance(int start, int end) {
+        if (parallelBfs != null) {
+            return parallelBfs.hopDistance(start, end);
+        }
+        PathResult path = bfs(start, end);
+        return path.found() ? path.hops() : -1;
+    }
+
+    // Number of vertices reachable from start, including start; large graphs are searched on all cores
+    int componentSize(int start) {
+        if (parallelBfs != null) {
+            return parallelBfs.reachableCount(start);
+        }
+        TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.vertexCount());
+        IntQueue queue = workspace.queue();
+        queue.add(start);
+        workspace.visit(start);
+        int count = 0;
+
+        while (!queue.isEmpty()) {
+            int current = queue.remove();
+            count++;
+
+            for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                int neighbor = graph.target(e);
+                if (workspace.visit(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Versioned binary image of a loaded graph: the city name table plus the CSR
+// arrays, little-endian, guarded by a CRC32 over everything after the header.
+//
+//   header   magic, version, vertex count, edge count, name bytes, checksum
+//   names    int[V + 1] byte offsets, int[(V + 31) / 32] removed-city bits,
+//            then the UTF-8 name bytes padded to 4
+//   graph    int[V + 1] offsets, int[E] targets, int[E] weights
+//
+// Version 1 had no removed-city bits and stored a removed city as an empty name.
+//
+// Opening maps the file and the graph reads its arrays straight from the
+// mapping, so nothing is parsed or copied, and processes that open the same
+// snapshot share its pages in the page cache. The only per-vertex work is
+// decoding the names. The checksum is left to verify(), which reads every page.
+public class GraphSnapshot {
+    private static final long MAGIC = 0x50414E5359544943L; // "CITYSNAP" read little-endian
+    private static final int FORMAT_VERSION = 2;
+    private static final int NO_REMOVED_BITS_VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+
+    private final String filename;
+    private final String[] names;
+    private final CsrGraph graph;
+    private final MappedIntArray nameOffsets;
+    private final MappedIntArray removed; // Null in version 1 files
+    private final ByteBuffer nameBlob;
+    private final MappedIntArray offsets;
+    private final MappedIntArray targets;
+    private final MappedIntArray weights;
+    private final long checksum;
+
+    private GraphSnapshot(String filename, String[] names, MappedIntArray nameOffsets, MappedIntArray removed, ByteBuffer nameBlob,
+                          MappedIntArray offsets, MappedIntArray targets, MappedIntArray weights, long checksum) {
+        this.filename = filename;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.removed = removed;
+        this.nameBlob = nameBlob;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.checksum = checksum;
+        graph = new CsrGraph(names.length, offsets, targets, weights);
+    }
+
+    // City names indexed by vertex id, null for a removed city
+    public String[] names() {
+        return names;
+    }
+
+    // The mapped graph; it stays usable after the snapshot object is dropped
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // Reads the whole body and compares it with the checksum it was written with
+    public void verify() throws IOException {
+        CRC32 crc = new CRC32();
+        nameOffsets.updateChecksum(crc);
+        if (removed != null) {
+            removed.updateChecksum(crc);
+        }
+        crc.update(nameBlob.duplicate());
+        offsets.updateChecksum(crc);
+        targets.updateChecksum(crc);
+        weights.updateChecksum(crc);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Graph snapshot checksum mismatch: " + filename);
+        }
+    }
+
+    // Writes names[0 .. V) and the graph, where V is the graph's vertex count.
+    // A null name marks a removed city, which stays distinct from an empty name.
+    public static void write(String filename, String[] names, CsrGraph graph) throws IOException {
+        graph = graph.packed();
+        int vertexCount = graph.vertexCount();
+        byte[][] encoded = new byte[vertexCount][];
+        int[] nameOffsets = new int[vertexCount + 1];
+        int[] removed = new int[removedWords(vertexCount)];
+        for (int v = 0; v < vertexCount; v++) {
+            if (names[v] == null) {
+                removed[v >>> 5] |= 1 << (v & 31);
+                encoded[v] = new byte[0];
+            } else {
+                encoded[v] = names[v].getBytes(StandardCharsets.UTF_8);
+            }
+            nameOffsets[v + 1] = Math.addExact(nameOffsets[v], encoded[v].length);
+        }
+        int nameBytes = nameOffsets[vertexCount];
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(channel, HEADER_SIZE);
+            out.putInts(nameOffsets);
+            out.putInts(removed);
+            for (byte[] name : encoded) {
+                out.putBytes(name);
+            }
+            out.putBytes(new byte[padding(nameBytes)]);
+            out.putInts(graph.offsets);
+            out.putInts(graph.targets);
+            out.putInts(graph.weights);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(vertexCount).putInt(graph.edgeCount())
+                    .putInt(nameBytes).putLong(out.checksum()).putLong(0);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    public static GraphSnapshot open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a graph snapshot: " + filename);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong() != MAGIC) {
+                throw new IOException("Not a graph snapshot: " + filename);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION && version != NO_REMOVED_BITS_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + filename);
+            }
+            int vertexCount = header.getInt();
+            int edgeCount = header.getInt();
+            int nameBytes = header.getInt();
+            long expectedChecksum = header.getLong();
+
+            int removedWords = version == FORMAT_VERSION ? removedWords(vertexCount) : 0;
+            long bodySize = 4L * (vertexCount + 1) + 4L * removedWords + nameBytes + padding(nameBytes)
+                    + 4L * (vertexCount + 1) + 8L * edgeCount;
+            if (channel.size() != HEADER_SIZE + bodySize) {
+                throw new IOException("Truncated graph snapshot: " + filename);
+            }
+
+            long position = HEADER_SIZE;
+            MappedIntArray nameOffsets = MappedIntArray.map(channel, position, vertexCount + 1);
+            position += 4L * (vertexCount + 1);
+            MappedIntArray removed = removedWords > 0 ? MappedIntArray.map(channel, position, removedWords) : null;
+            position += 4L * removedWords;
+            ByteBuffer nameBlob = channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes + padding(nameBytes));
+            position += nameBytes + padding(nameBytes);
+            MappedIntArray offsets = MappedIntArray.map(channel, position, vertexCount + 1);
+            position += 4L * (vertexCount + 1);
+            MappedIntArray targets = MappedIntArray.map(channel, position, edgeCount);
+            position += 4L * edgeCount;
+            MappedIntArray weights = MappedIntArray.map(channel, position, edgeCount);
+            if (offsets.get(0) != 0 || offsets.get(vertexCount) != edgeCount || nameOffsets.get(vertexCount) != nameBytes) {
+                throw new IOException("Corrupt graph snapshot: " + filename);
+            }
+
+            String[] names = new String[vertexCount];
+            byte[] name = new byte[16];
+            for (int v = 0; v < vertexCount; v++) {
+                int start = nameOffsets.get(v);
+                int length = nameOffsets.get(v + 1) - start;
+                if (length > name.length) {
+                    name = new byte[Math.max(length, name.length << 1)];
+                }
+                boolean isRemoved = removed != null ? (removed.get(v >>> 5) & 1 << (v & 31)) != 0 : length == 0;
+                if (!isRemoved) {
+                    nameBlob.get(start, name, 0, length);
+                    names[v] = new String(name, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+            return new GraphSnapshot(filename, names, nameOffsets, removed, nameBlob, offsets, targets, weights, expectedChecksum);
+        }
+    }
+
+    private static int removedWords(int vertexCount) {
+        return (int) (((long) vertexCount + 31) >>> 5);
+    }
+
+    private static int padding(int length) {
+        return (4 - (length & 3)) & 3;
+    }
+
+    // Buffers writes and folds every byte written into the checksum
+    private static class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        SectionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int value : values) {
+                if (buffer.remaining() < 4) {
+                    flush();
+                }
+                buffer.putInt(value);
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, count);
+                written += count;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        long checksum() {
+            return crc.getValue();
+        }
+    }
+}
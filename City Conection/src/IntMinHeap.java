@@ -0,0 +1,117 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Indexed binary min-heap of int ids keyed by long priorities, with decrease-key
+public class IntMinHeap {
+    private final int[] heap;      // Ids in heap order
+    private final long[] keys;     // Priority per id
+    private final int[] positions; // Index of each id in heap, or -1 when absent
+    private int size;
+
+    public IntMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new long[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int capacity() {
+        return heap.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return positions[id] != -1;
+    }
+
+    // Inserts id, or lowers its key if it is already queued with a larger one
+    public void insertOrDecrease(int id, long key) {
+        int index = positions[id];
+        if (index == -1) {
+            index = size++;
+            heap[index] = id;
+            positions[id] = index;
+        } else if (key >= keys[id]) {
+            return;
+        }
+        keys[id] = key;
+        siftUp(index);
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return heap[0];
+    }
+
+    public long peekKey() {
+        return keys[peek()];
+    }
+
+    public int poll() {
+        int top = peek();
+        positions[top] = -1;
+        if (--size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    // Empties the heap in O(size) so it can be reused for the next query
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        long key = keys[id];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) {
+                break;
+            }
+            heap[index] = parentId;
+            positions[parentId] = index;
+            index = parent;
+        }
+        heap[index] = id;
+        positions[id] = index;
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        long key = keys[id];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) {
+                break;
+            }
+            heap[index] = childId;
+            positions[childId] = index;
+            index = child;
+        }
+        heap[index] = id;
+        positions[id] = index;
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// FIFO queue of ints on a growable ring buffer; clear() keeps the buffer for reuse
+public class IntQueue {
+    private int[] elements;
+    private int head;
+    private int size;
+    private int mask;
+
+    public IntQueue() {
+        this(16);
+    }
+
+    public IntQueue(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize - 1, 1)) << 1;
+        elements = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public void add(int value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & mask] = value;
+        size++;
+    }
+
+    public int remove() {
+        if (size == 0) {
+            throw new NoSuchElementException("Queue is empty");
+        }
+        int value = elements[head];
+        head = (head + 1) & mask;
+        size--;
+        return value;
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Queue is empty");
+        }
+        return elements[head];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // Doubles the buffer and unwraps the elements to start at index 0
+    private void grow() {
+        int[] grown = new int[elements.length << 1];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+        elements = grown;
+        head = 0;
+        mask = grown.length - 1;
+    }
+
+    @Override
+    public String toString() {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = elements[(head + i) & mask];
+        }
+        return Arrays.toString(values);
+    }
+}
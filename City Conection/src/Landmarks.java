@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+// Precomputed distances to and from a few landmark vertices. By the triangle
+// inequality they give admissible, consistent lower bounds for A* (ALT).
+public class Landmarks {
+    static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final int count;
+    private final int[] vertices;
+    // Vertex-major layout: entry v * count + i belongs to landmark i, -1 if unreachable
+    private final long[] fromLandmark;
+    private final long[] toLandmark;
+
+    // Lower bound inputs for the current target, copied out once per query
+    private final long[] targetFrom;
+    private final long[] targetTo;
+
+    private Landmarks(int[] vertices, long[] fromLandmark, long[] toLandmark) {
+        this.count = vertices.length;
+        this.vertices = vertices;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+        targetFrom = new long[count];
+        targetTo = new long[count];
+    }
+
+    // Picks up to count landmarks by farthest-point selection and runs two Dijkstra searches per landmark
+    public static Landmarks select(CsrGraph graph, CsrGraph reverse, int count) {
+        int n = graph.vertexCount();
+        count = Math.min(count, n);
+        ShortestPathEngine forward = new ShortestPathEngine(graph);
+        ShortestPathEngine backward = new ShortestPathEngine(reverse);
+
+        int[] vertices = new int[count];
+        long[] fromLandmark = new long[n * count];
+        long[] toLandmark = new long[n * count];
+        long[] distances = new long[n];
+        long[] nearest = new long[n]; // Distance from the closest chosen landmark
+        Arrays.fill(nearest, UNREACHABLE);
+
+        // Start from the vertex farthest from vertex 0
+        int candidate = 0;
+        if (n > 0) {
+            forward.distancesFrom(0, distances);
+            for (int v = 0; v < n; v++) {
+                if (distances[v] > distances[candidate]) {
+                    candidate = v;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            vertices[i] = candidate;
+            nearest[candidate] = -1; // Never pick the same vertex twice
+
+            forward.distancesFrom(candidate, distances);
+            for (int v = 0; v < n; v++) {
+                fromLandmark[v * count + i] = distances[v];
+                if (distances[v] != -1 && nearest[v] != -1 && distances[v] < nearest[v]) {
+                    nearest[v] = distances[v];
+                }
+            }
+            backward.distancesFrom(candidate, distances);
+            for (int v = 0; v < n; v++) {
+                toLandmark[v * count + i] = distances[v];
+            }
+
+            // Next landmark: the vertex farthest from all chosen ones (unreached vertices first)
+            for (int v = 0; v < n; v++) {
+                if (nearest[v] > nearest[candidate]) {
+                    candidate = v;
+                }
+            }
+        }
+
+        return new Landmarks(vertices, fromLandmark, toLandmark);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int vertex(int i) {
+        return vertices[i];
+    }
+
+    public void setTarget(int target) {
+        int base = target * count;
+        for (int i = 0; i < count; i++) {
+            targetFrom[i] = fromLandmark[base + i];
+            targetTo[i] = toLandmark[base + i];
+        }
+    }
+
+    // Lower bound on the distance from v to the current target, or UNREACHABLE when
+    // the landmarks prove that the target cannot be reached from v
+    public long lowerBound(int v) {
+        int base = v * count;
+        long bound = 0;
+        for (int i = 0; i < count; i++) {
+            long fromV = fromLandmark[base + i];
+            long toV = toLandmark[base + i];
+
+            // d(v, t) >= d(L, t) - d(L, v)
+            if (fromV != -1) {
+                if (targetFrom[i] == -1) {
+                    return UNREACHABLE; // L reaches v but not t
+                }
+                bound = Math.max(bound, targetFrom[i] - fromV);
+            }
+            // d(v, t) >= d(v, L) - d(t, L)
+            if (targetTo[i] != -1) {
+                if (toV == -1) {
+                    return UNREACHABLE; // t reaches L but v does not
+                }
+                bound = Math.max(bound, toV - targetTo[i]);
+            }
+        }
+        return bound;
+    }
+
+    public long sizeInBytes() {
+        return 8L * (fromLandmark.length + toLandmark.length) + 4L * vertices.length;
+    }
+}
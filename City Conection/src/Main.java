@@ -1,28 +1,52 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Scanner;
+import javax.management.JMException;
 
+// With no arguments, loads graph.txt and runs the interactive menu.
+// --server [port] loads graph.txt once and serves the menu queries with QueryServer;
+// --connect [port] runs the same menu against a running server.
 public class Main {
-    public static void main(String[] args) {
+    private static final int DEFAULT_PORT = 7878;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        if (args.length > 0 && args[0].equals("--connect")) {
+            runClient(port);
+            return;
+        }
+
         City cityGraph = new City();
 
+        // Query metrics, readable with JConsole under CityConection:type=QueryMetrics
+        QueryMetrics metrics = new QueryMetrics();
+        cityGraph.setMetrics(metrics);
+        try {
+            metrics.register("main");
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+
         cityGraph.readGraphFromFile("graph.txt");
 
+        if (args.length > 0 && args[0].equals("--server")) {
+            try (QueryServer server = new QueryServer(cityGraph, port, Runtime.getRuntime().availableProcessors(), metrics)) {
+                System.out.println("Serving queries on port " + server.port());
+                server.run();
+            }
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         int choice;
 
         do {
-            System.out.println("1. Is there a path between two vertices?");
-            System.out.println("2. BFS from one vertex to another");
-            System.out.println("3. DFS From To");
-            System.out.println("4. What Is Shortest Path Length?");
-            System.out.println("5. Number Of Simple Paths");
-            System.out.println("6. Neighbors");
-            System.out.println("7. Highest Degree");
-            System.out.println("8. Is Directed?");
-            System.out.println("9. Are They Adjacent?");
-            System.out.println("10. Is There a cycle?");
-            System.out.println("11. Number Of Vertices In Component");
-            System.out.println("0. Exit");
+            printMenu();
             System.out.print("Enter your choice: ");
             choice = scanner.nextInt();
 
@@ -93,4 +117,59 @@ public class Main {
 
         scanner.close();
     }
+
+    private static void printMenu() {
+        System.out.println("1. Is there a path between two vertices?");
+        System.out.println("2. BFS from one vertex to another");
+        System.out.println("3. DFS From To");
+        System.out.println("4. What Is Shortest Path Length?");
+        System.out.println("5. Number Of Simple Paths");
+        System.out.println("6. Neighbors");
+        System.out.println("7. Highest Degree");
+        System.out.println("8. Is Directed?");
+        System.out.println("9. Are They Adjacent?");
+        System.out.println("10. Is There a cycle?");
+        System.out.println("11. Number Of Vertices In Component");
+        System.out.println("0. Exit");
+    }
+
+    // The menu as a client of QueryServer: each choice is sent as one request line
+    private static void runClient(int port) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            Scanner scanner = new Scanner(System.in);
+            int choice;
+
+            do {
+                printMenu();
+                System.out.print("Enter your choice: ");
+                choice = scanner.nextInt();
+
+                int arity = QueryServer.arity(choice);
+                if (choice == 0) {
+                    System.out.println("Exiting program.");
+                } else if (arity == -1) {
+                    System.out.println("Invalid choice. Please enter a valid option.");
+                } else {
+                    StringBuilder request = new StringBuilder().append(choice);
+                    if (arity >= 1) {
+                        System.out.print("Enter the source city: ");
+                        request.append(' ').append(scanner.next().toUpperCase());
+                    }
+                    if (arity == 2) {
+                        System.out.print("Enter the destination city: ");
+                        request.append(' ').append(scanner.next().toUpperCase());
+                    }
+                    out.println(request);
+                    String response = in.readLine();
+                    if (response == null) {
+                        System.out.println("Server closed the connection");
+                        return;
+                    }
+                    System.out.println(response);
+                }
+            } while (choice != 0);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+// Read-only int array over little-endian ints in a file. It is mapped in segments
+// of 2^SEGMENT_SHIFT ints, so it can be longer than one MappedByteBuffer allows.
+// Reads go straight to the page cache, which every process mapping the file
+// shares, and the mapping outlives the channel it was made from.
+public class MappedIntArray {
+    private static final int SEGMENT_SHIFT = 28; // 1 GB per mapping
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    private final int length;
+
+    private MappedIntArray(ByteBuffer[] segments, int length) {
+        this.segments = segments;
+        this.length = length;
+    }
+
+    // Maps length ints starting at byte position of the file
+    public static MappedIntArray map(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[Math.max(1, (int) (((long) length + SEGMENT_MASK) >>> SEGMENT_SHIFT))];
+        for (int s = 0; s < segments.length; s++) {
+            long first = (long) s << SEGMENT_SHIFT;
+            long count = Math.min(length - first, 1L << SEGMENT_SHIFT);
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * first, 4 * Math.max(count, 0))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new MappedIntArray(segments, length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int get(int index) {
+        return segments[index >>> SEGMENT_SHIFT].getInt((index & SEGMENT_MASK) << 2);
+    }
+
+    // Copies count ints starting at index into destination[offset ..]
+    public void copyTo(int index, int[] destination, int offset, int count) {
+        while (count > 0) {
+            int inSegment = index & SEGMENT_MASK;
+            int batch = Math.min(count, (1 << SEGMENT_SHIFT) - inSegment);
+            segments[index >>> SEGMENT_SHIFT].duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                    .position(inSegment << 2).asIntBuffer().get(destination, offset, batch);
+            index += batch;
+            offset += batch;
+            count -= batch;
+        }
+    }
+
+    // Folds the mapped bytes into crc, reading every page of the array
+    public void updateChecksum(CRC32 crc) {
+        for (ByteBuffer segment : segments) {
+            crc.update(segment.duplicate());
+        }
+    }
+}
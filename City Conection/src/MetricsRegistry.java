@@ -0,0 +1,52 @@
+import java.util.function.DoubleSupplier;
+
+// Receives timings and work counts from City. Implementations must be thread-safe
+// and should not allocate in the record methods, which run on every query.
+// NONE discards everything; QueryMetrics keeps histograms and serves them over JMX.
+public interface MetricsRegistry {
+    // The eleven queries of the interactive menu
+    enum Operation {
+        IS_THERE_A_PATH,
+        BFS_FROM_TO,
+        DFS_FROM_TO,
+        SHORTEST_PATH_LENGTH,
+        SIMPLE_PATHS,
+        NEIGHBORS,
+        HIGHEST_DEGREE,
+        IS_DIRECTED,
+        ADJACENT,
+        CYCLE,
+        COMPONENT_SIZE
+    }
+
+    MetricsRegistry NONE = new MetricsRegistry() {
+        @Override
+        public void recordQuery(Operation operation, long nanos) {
+        }
+
+        @Override
+        public void recordWork(Operation operation, long settled, long relaxed) {
+        }
+
+        @Override
+        public void recordLoad(long edges, long bytes, long nanos) {
+        }
+
+        @Override
+        public void gauge(String name, DoubleSupplier value) {
+        }
+    };
+
+    // One call of the operation took nanos
+    void recordQuery(Operation operation, long nanos);
+
+    // A search inside the operation settled or visited that many vertices and relaxed that
+    // many edges; only weighted searches relax edges
+    void recordWork(Operation operation, long settled, long relaxed);
+
+    // A load parsed edges from a file of bytes in nanos
+    void recordLoad(long edges, long bytes, long nanos);
+
+    // A value read on demand, such as a cache hit ratio or a heap footprint
+    void gauge(String name, DoubleSupplier value);
+}
@@ -0,0 +1,220 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+// Level-synchronous breadth-first search on the common ForkJoin pool. Each level
+// is expanded in parallel in one of two directions:
+//
+//   top-down   the frontier is split into chunks; each task scans the out-edges
+//              of its vertices and claims unvisited targets with a CAS on the
+//              visited bitset
+//   bottom-up  every unvisited vertex looks for an in-neighbour in the frontier
+//              and stops at the first one; tasks own whole bitset words, so no
+//              two of them write the same word
+//
+// The search starts top-down and switches to bottom-up once the frontier's edges
+// outnumber a share of the unvisited vertices' edges, then back once the frontier
+// is both shrinking and small (Beamer et al., direction-optimizing BFS). Only hop
+// counts are computed, not parents, so the result does not depend on the schedule.
+// Instances hold no search state and may be shared between threads.
+public class ParallelBfs {
+    static final int MIN_PARALLEL_VERTICES = 1 << 16; // Below this a sequential search is faster
+    private static final int ALPHA = 14; // Bottom-up once frontier edges exceed unvisited edges / ALPHA
+    private static final int BETA = 24;  // Top-down again once a shrinking frontier holds under V / BETA vertices
+    private static final int CHUNK_VERTICES = 1 << 10; // Frontier vertices per top-down task
+    private static final int CHUNK_WORDS = 1 << 6;     // Bitset words per bottom-up task
+
+    private final CsrGraph graph;
+    private volatile CsrGraph reverse; // In-edges, built for the first bottom-up level
+
+    public ParallelBfs(CsrGraph graph) {
+        this.graph = graph;
+    }
+
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // levels[v] is the fewest edges on a path from source to v, or -1 if there is none
+    public int[] levels(int source) {
+        int[] levels = new int[graph.vertexCount()];
+        Arrays.fill(levels, -1);
+        search(source, -1, levels);
+        return levels;
+    }
+
+    // Fewest edges on a path from source to target, or -1 if there is none
+    public int hopDistance(int source, int target) {
+        int[] levels = new int[graph.vertexCount()];
+        Arrays.fill(levels, -1);
+        search(source, target, levels);
+        return levels[target];
+    }
+
+    // Number of vertices reachable from source, including source
+    public int reachableCount(int source) {
+        return search(source, -1, new int[graph.vertexCount()]);
+    }
+
+    // Fills levels for the vertices it reaches, stopping after the level that reaches
+    // target (-1 searches everything), and returns how many it reached
+    private int search(int source, int target, int[] levels) {
+        int vertexCount = graph.vertexCount();
+        AtomicLongArray visited = new AtomicLongArray((vertexCount + 63) >>> 6);
+        visited.set(source >>> 6, 1L << source);
+        levels[source] = 0;
+
+        int[] frontier = {source};
+        long[] frontierBits = null; // Set while searching bottom-up
+        int frontierSize = 1;
+        int previousSize = 0;
+        long frontierEdges = graph.degree(source);
+        long unvisitedEdges = graph.edgeCount() - frontierEdges;
+        int reached = 1;
+
+        for (int depth = 1; frontierSize > 0 && (target == -1 || levels[target] == -1); depth++) {
+            if (frontierBits == null && frontierEdges > unvisitedEdges / ALPHA) {
+                frontierBits = toBits(frontier, visited.length());
+            } else if (frontierBits != null && frontierSize < previousSize && frontierSize < vertexCount / BETA) {
+                frontier = toList(frontierBits, frontierSize);
+                frontierBits = null;
+            }
+
+            int level = depth;
+            previousSize = frontierSize;
+            if (frontierBits == null) {
+                int[] current = frontier;
+                int chunks = (current.length + CHUNK_VERTICES - 1) / CHUNK_VERTICES;
+                int[][] parts = IntStream.range(0, chunks).parallel()
+                        .mapToObj(c -> expandTopDown(current, c, visited, levels, level))
+                        .toArray(int[][]::new);
+                frontier = concat(parts);
+                frontierSize = frontier.length;
+                frontierEdges = IntStream.of(frontier).parallel().mapToLong(graph::degree).sum();
+            } else {
+                CsrGraph in = reverse();
+                long[] current = frontierBits;
+                long[] next = new long[current.length];
+                int chunks = (current.length + CHUNK_WORDS - 1) / CHUNK_WORDS;
+                long[] found = IntStream.range(0, chunks).parallel()
+                        .mapToObj(c -> expandBottomUp(in, current, next, c, visited, levels, level))
+                        .reduce(new long[2], (a, b) -> new long[] {a[0] + b[0], a[1] + b[1]});
+                frontierBits = next;
+                frontierSize = (int) found[0];
+                frontierEdges = found[1];
+            }
+            reached += frontierSize;
+            unvisitedEdges -= frontierEdges;
+        }
+        return reached;
+    }
+
+    // Claims the unvisited out-neighbours of one chunk of the frontier and returns them
+    private int[] expandTopDown(int[] frontier, int chunk, AtomicLongArray visited, int[] levels, int level) {
+        IntStack next = new IntStack();
+        for (int i = chunk * CHUNK_VERTICES, last = Math.min(frontier.length, i + CHUNK_VERTICES); i < last; i++) {
+            int u = frontier[i];
+            for (int e = graph.begin(u), end = graph.end(u); e < end; e++) {
+                int v = graph.target(e);
+                if (claim(visited, v)) {
+                    levels[v] = level;
+                    next.push(v);
+                }
+            }
+        }
+        return next.toArray();
+    }
+
+    // Visits the vertices of one run of words that have an in-neighbour in the frontier;
+    // returns how many there were and the sum of their out-degrees
+    private long[] expandBottomUp(CsrGraph in, long[] frontier, long[] next, int chunk,
+                                  AtomicLongArray visited, int[] levels, int level) {
+        int vertexCount = graph.vertexCount();
+        long count = 0;
+        long edges = 0;
+        for (int w = chunk * CHUNK_WORDS, lastWord = Math.min(next.length, w + CHUNK_WORDS); w < lastWord; w++) {
+            long seen = visited.get(w);
+            if (seen == -1L) {
+                continue;
+            }
+            long found = 0;
+            for (int v = w << 6, last = Math.min(vertexCount, v + 64); v < last; v++) {
+                if ((seen & (1L << v)) != 0) {
+                    continue;
+                }
+                for (int e = in.begin(v), end = in.end(v); e < end; e++) {
+                    int u = in.target(e);
+                    if ((frontier[u >>> 6] & (1L << u)) != 0) {
+                        found |= 1L << v;
+                        levels[v] = level;
+                        count++;
+                        edges += graph.degree(v);
+                        break;
+                    }
+                }
+            }
+            if (found != 0) {
+                next[w] = found;
+                visited.set(w, seen | found); // This task is the only writer of word w
+            }
+        }
+        return new long[] {count, edges};
+    }
+
+    private CsrGraph reverse() {
+        CsrGraph in = reverse;
+        if (in == null) {
+            in = graph.reverse();
+            reverse = in; // Two threads may both build it; either copy will do
+        }
+        return in;
+    }
+
+    // Sets the bit of v; false if it was already set
+    private static boolean claim(AtomicLongArray visited, int v) {
+        int word = v >>> 6;
+        long bit = 1L << v;
+        long old = visited.get(word);
+        while ((old & bit) == 0) {
+            long witness = visited.compareAndExchange(word, old, old | bit);
+            if (witness == old) {
+                return true;
+            }
+            old = witness;
+        }
+        return false;
+    }
+
+    private static long[] toBits(int[] vertices, int words) {
+        long[] bits = new long[words];
+        for (int v : vertices) {
+            bits[v >>> 6] |= 1L << v;
+        }
+        return bits;
+    }
+
+    private static int[] toList(long[] bits, int count) {
+        int[] vertices = new int[count];
+        int size = 0;
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                vertices[size++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return vertices;
+    }
+
+    private static int[] concat(int[][] parts) {
+        int length = 0;
+        for (int[] part : parts) {
+            length += part.length;
+        }
+        int[] all = new int[length];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        return all;
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+// Loads a graph file on several threads. The file is cut into line-aligned chunks
+// that are parsed independently with chunk-local vertex ids. The chunks' names are
+// then merged in file order, which hands out exactly the ids a sequential load
+// would, and the edge buffers are remapped in parallel and appended in order.
+public class ParallelGraphLoader {
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+
+    private ParallelGraphLoader() {
+    }
+
+    // Adds the file's edges to builder; cityIndex must return (or create) the global id of a name.
+    // invalidLine receives each rejected line with its line number in the file.
+    public static void load(String filename, int threads, GraphBuilder builder,
+                            ToIntFunction<String> cityIndex, ObjIntConsumer<String> invalidLine) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel, threads);
+
+            List<Future<?>> parsing = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                parsing.add(pool.submit(() -> chunk.parse(channel)));
+            }
+            await(parsing);
+
+            // Sequential merge keeps the id assignment order of a sequential load
+            List<Future<?>> remapping = new ArrayList<>();
+            int linesBefore = 0;
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.invalidLines.size(); i++) {
+                    invalidLine.accept(chunk.invalidLines.get(i), linesBefore + chunk.invalidLineNumbers.get(i));
+                }
+                linesBefore += chunk.lineCount;
+                int[] mapping = new int[chunk.names.size()];
+                for (int i = 0; i < mapping.length; i++) {
+                    mapping[i] = cityIndex.applyAsInt(chunk.names.get(i));
+                }
+                remapping.add(pool.submit(() -> chunk.edges.remapVertices(mapping)));
+            }
+            await(remapping);
+
+            for (Chunk chunk : chunks) {
+                builder.addAll(chunk.edges);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Cuts the file into chunks that each end just after a newline
+    private static List<Chunk> split(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / ((long) threads * CHUNKS_PER_THREAD) + 1));
+
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(1 << 16);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // Extend the chunk to the end of the line it stops in
+            if (end < size && !endsWithNewline(channel, end, probe)) {
+                end = nextLineEnd(channel, end, size, probe);
+            }
+            if (end - start > Integer.MAX_VALUE - 8) {
+                throw new IOException("Line too long to load in parallel near offset " + start);
+            }
+            chunks.add(new Chunk(start, (int) (end - start)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static boolean endsWithNewline(FileChannel channel, long end, ByteBuffer probe) throws IOException {
+        probe.clear().limit(1);
+        channel.read(probe, end - 1);
+        return probe.get(0) == '\n';
+    }
+
+    // Offset just past the first newline at or after position, or size
+    private static long nextLineEnd(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += Math.max(read, 0);
+        }
+        return size;
+    }
+
+    private static void await(List<Future<?>> futures) throws IOException {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading graph", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Graph loading failed", e.getCause());
+        }
+    }
+
+    // One line-aligned byte range of the file with its chunk-local names and edges
+    private static class Chunk implements GraphParser.Sink {
+        private final long offset;
+        private final int length;
+        private final StringIntMap localIds = new StringIntMap();
+        final List<String> names = new ArrayList<>(); // Local id -> name, in order of first appearance
+        final List<String> invalidLines = new ArrayList<>();
+        final List<Integer> invalidLineNumbers = new ArrayList<>(); // Counted from the chunk's first line
+        final GraphBuilder edges;
+        int lineCount;
+
+        Chunk(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+            edges = new GraphBuilder(length / 8); // Roughly one edge per "X: 1, " group
+        }
+
+        void parse(FileChannel channel) {
+            byte[] buffer = new byte[length];
+            ByteBuffer window = ByteBuffer.wrap(buffer);
+            try {
+                while (window.hasRemaining()) {
+                    if (channel.read(window, offset + window.position()) == -1) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            GraphParser parser = new GraphParser(this);
+            parser.parseLines(buffer, 0, window.position());
+            lineCount = parser.lineCount();
+        }
+
+        @Override
+        public int vertex(byte[] buffer, int offset, int length) {
+            int id = localIds.getOrDefault(buffer, offset, length, -1);
+            if (id == -1) {
+                id = names.size();
+                String name = new String(buffer, offset, length, StandardCharsets.UTF_8);
+                localIds.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+
+        @Override
+        public void edge(int from, int to, int weight) {
+            edges.addEdge(from, to, weight);
+        }
+
+        @Override
+        public void invalidLine(int lineNumber, byte[] buffer, int offset, int length) {
+            invalidLines.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            invalidLineNumbers.add(lineNumber);
+        }
+    }
+}
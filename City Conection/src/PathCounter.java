@@ -0,0 +1,225 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// Counts simple paths between two vertices. Only vertices that are reachable from
+// the source and can reach the target matter; if they form a DAG the count is a
+// dynamic program over a topological order in O(V + E), otherwise the paths are
+// enumerated by a bounded depth-first search.
+public class PathCounter {
+    private CsrGraph graph;
+    private CsrGraph reverse; // Built on the first query unless given
+    private final IntQueue queue = new IntQueue();
+    private final IntStack vertices = new IntStack();
+    private final IntStack cursors = new IntStack();
+
+    public PathCounter(CsrGraph graph) {
+        this(graph, null);
+    }
+
+    // reverse, if not null, must be graph.reverse(), for a caller that already has it
+    public PathCounter(CsrGraph graph, CsrGraph reverse) {
+        setGraph(graph, reverse);
+    }
+
+    // Counts on graph from now on, keeping the stacks and queue
+    public void setGraph(CsrGraph graph, CsrGraph reverse) {
+        this.graph = graph;
+        this.reverse = reverse;
+    }
+
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // Outcome of a count: exact unless the enumeration hit maxPaths
+    public static class Result {
+        private final BigInteger count;
+        private final boolean exact;
+        private final boolean acyclic;
+
+        Result(BigInteger count, boolean exact, boolean acyclic) {
+            this.count = count;
+            this.exact = exact;
+            this.acyclic = acyclic;
+        }
+
+        public BigInteger count() {
+            return count;
+        }
+
+        // False when there are more than maxPaths paths, so the count of maxPaths is a lower bound
+        public boolean isExact() {
+            return exact;
+        }
+
+        // True when the paths between the two vertices could be counted without enumeration
+        public boolean isAcyclic() {
+            return acyclic;
+        }
+    }
+
+    // Counts simple paths with at most maxLength edges; the count is exact up to maxPaths
+    public Result count(int source, int target, int maxLength, long maxPaths) {
+        if (source == target) {
+            return new Result(BigInteger.ONE, true, true); // Only the empty path is simple
+        }
+
+        boolean[] relevant = relevantVertices(source, target);
+        if (!relevant[source]) {
+            return new Result(BigInteger.ZERO, true, true);
+        }
+
+        int[] order = topologicalOrder(relevant);
+        if (order != null && maxLength >= order.length - 1) {
+            // No path can be longer than the DAG it runs through
+            return new Result(countInDag(order, relevant, target), true, true);
+        }
+        return enumerate(source, target, relevant, maxLength, maxPaths, order != null);
+    }
+
+    // Marks vertices that lie on some source -> target walk
+    private boolean[] relevantVertices(int source, int target) {
+        if (reverse == null) {
+            reverse = graph.reverse();
+        }
+        int n = graph.vertexCount();
+        boolean[] fromSource = reachable(graph, source, new boolean[n]);
+        boolean[] toTarget = reachable(reverse, target, new boolean[n]);
+        for (int v = 0; v < n; v++) {
+            fromSource[v] &= toTarget[v];
+        }
+        return fromSource;
+    }
+
+    private boolean[] reachable(CsrGraph graph, int start, boolean[] visited) {
+        queue.clear();
+        queue.add(start);
+        visited[start] = true;
+
+        while (!queue.isEmpty()) {
+            int current = queue.remove();
+            for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                int neighbor = graph.target(e);
+                if (!visited[neighbor]) {
+                    visited[neighbor] = true;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return visited;
+    }
+
+    // Kahn's algorithm restricted to relevant vertices; null if they contain a cycle
+    private int[] topologicalOrder(boolean[] relevant) {
+        int n = graph.vertexCount();
+        int[] inDegree = new int[n];
+        int relevantCount = 0;
+        for (int v = 0; v < n; v++) {
+            if (!relevant[v]) {
+                continue;
+            }
+            relevantCount++;
+            for (int e = graph.begin(v), last = graph.end(v); e < last; e++) {
+                if (relevant[graph.target(e)]) {
+                    inDegree[graph.target(e)]++;
+                }
+            }
+        }
+
+        int[] order = new int[relevantCount];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (relevant[v] && inDegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int current = order[head++];
+            for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                int neighbor = graph.target(e);
+                if (relevant[neighbor] && --inDegree[neighbor] == 0) {
+                    order[tail++] = neighbor;
+                }
+            }
+        }
+        return tail == relevantCount ? order : null;
+    }
+
+    // paths[v] = number of source -> v paths, accumulated in topological order.
+    // Counts stay in longs until one overflows, then the pass restarts with BigIntegers.
+    private BigInteger countInDag(int[] order, boolean[] relevant, int target) {
+        long[] paths = new long[graph.vertexCount()];
+        paths[order[0]] = 1; // The only relevant vertex without incoming edges is the source
+        try {
+            for (int current : order) {
+                for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                    int neighbor = graph.target(e);
+                    if (relevant[neighbor]) {
+                        paths[neighbor] = Math.addExact(paths[neighbor], paths[current]);
+                    }
+                }
+            }
+            return BigInteger.valueOf(paths[target]);
+        } catch (ArithmeticException overflow) {
+            BigInteger[] bigPaths = new BigInteger[graph.vertexCount()];
+            Arrays.fill(bigPaths, BigInteger.ZERO);
+            bigPaths[order[0]] = BigInteger.ONE;
+            for (int current : order) {
+                for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                    int neighbor = graph.target(e);
+                    if (relevant[neighbor]) {
+                        bigPaths[neighbor] = bigPaths[neighbor].add(bigPaths[current]);
+                    }
+                }
+            }
+            return bigPaths[target];
+        }
+    }
+
+    // Depth-first enumeration with a visited bitset and explicit stacks of vertices and edge cursors
+    private Result enumerate(int source, int target, boolean[] relevant, int maxLength, long maxPaths, boolean acyclic) {
+        int n = graph.vertexCount();
+        long[] onPath = new long[(n + 63) >>> 6];
+        int depthLimit = Math.min(maxLength, n - 1);
+        if (depthLimit < 1) {
+            return new Result(BigInteger.ZERO, true, acyclic);
+        }
+        vertices.clear();
+        cursors.clear();
+        vertices.push(source);
+        cursors.push(graph.begin(source));
+        onPath[source >>> 6] |= 1L << source;
+        long count = 0;
+
+        while (!vertices.isEmpty()) {
+            int depth = vertices.size() - 1;
+            int current = vertices.peek();
+            int cursor = cursors.peek();
+            if (cursor == graph.end(current)) {
+                onPath[current >>> 6] &= ~(1L << current); // Backtrack
+                vertices.pop();
+                cursors.pop();
+                continue;
+            }
+
+            cursors.set(depth, cursor + 1);
+            int neighbor = graph.target(cursor);
+            if (!relevant[neighbor] || (onPath[neighbor >>> 6] & (1L << neighbor)) != 0) {
+                continue;
+            }
+            if (neighbor == target) {
+                if (++count > maxPaths) {
+                    return new Result(BigInteger.valueOf(maxPaths), false, acyclic); // Only needed one more to know
+                }
+                continue;
+            }
+            if (depth + 1 < depthLimit) {
+                vertices.push(neighbor);
+                cursors.push(graph.begin(neighbor));
+                onPath[neighbor >>> 6] |= 1L << neighbor;
+            }
+        }
+        return new Result(BigInteger.valueOf(count), true, acyclic);
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a path query: the cities along the path with the weight of each hop,
+// the total weight, and how many vertices the search visited to find it
+public class PathResult {
+    private final List<String> cities; // Empty when no path was found
+    private final int[] weights;       // weights[i] is the hop from cities[i] to cities[i + 1]
+    private final long length;
+    private final int visitedCount;
+
+    PathResult(List<String> cities, int[] weights, long length, int visitedCount) {
+        this.cities = Collections.unmodifiableList(cities);
+        this.weights = weights;
+        this.length = length;
+        this.visitedCount = visitedCount;
+    }
+
+    static PathResult notFound(int visitedCount) {
+        return new PathResult(Collections.emptyList(), new int[0], -1, visitedCount);
+    }
+
+    public boolean found() {
+        return !cities.isEmpty();
+    }
+
+    public List<String> cities() {
+        return cities;
+    }
+
+    // Number of edges on the path
+    public int hops() {
+        return weights.length;
+    }
+
+    public int weight(int hop) {
+        return weights[hop];
+    }
+
+    // Sum of the hop weights, or -1 when no path was found
+    public long length() {
+        return length;
+    }
+
+    // Vertices visited (or settled, for shortest paths) by the search
+    public int visitedCount() {
+        return visitedCount;
+    }
+
+    @Override
+    public String toString() {
+        return found() ? cities + " (" + length + ", " + visitedCount + " visited)" : "no path (" + visitedCount + " visited)";
+    }
+}
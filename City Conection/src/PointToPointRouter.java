@@ -0,0 +1,327 @@
+import java.util.Arrays;
+
+// Answers single source -> target shortest path queries with the selected RoutingMode.
+// Like ShortestPathEngine, every array is allocated once and reused via epoch stamps.
+public class PointToPointRouter {
+    private static final int DEFAULT_LANDMARKS = 8;
+
+    private CsrGraph graph;
+    private final ShortestPathEngine dijkstra;
+    private CsrGraph reverse;     // Built on the first bidirectional or ALT query
+    private Landmarks landmarks;  // Built on the first ALT query
+    private ContractionHierarchyQuery hierarchyQuery;
+    private int landmarkCount = DEFAULT_LANDMARKS;
+    private RoutingMode mode = RoutingMode.DIJKSTRA;
+
+    // Search state, forward side also serves A*
+    private IntMinHeap forwardHeap;
+    private IntMinHeap backwardHeap;
+    private long[] forwardDistances;
+    private long[] backwardDistances;
+    private int[] forwardParents;  // Predecessor towards the source
+    private int[] backwardParents; // Successor towards the target
+    private int[] forwardStamps;
+    private int[] backwardStamps;
+    private long[] potentials;     // Cached landmark lower bound per vertex
+    private int epoch;
+
+    // Last query
+    private RoutingMode lastMode;
+    private int source = -1;
+    private int target = -1;
+    private int meeting = -1;
+    private int settledCount;
+    private long relaxedCount;
+
+    public PointToPointRouter(CsrGraph graph) {
+        this.graph = graph;
+        dijkstra = new ShortestPathEngine(graph);
+    }
+
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // Routes on graph from now on, such as a newer version of the current one. The search
+    // arrays are kept while they are large enough; the reverse graph, the landmarks and
+    // the hierarchy belonged to the old graph and are dropped.
+    public void setGraph(CsrGraph graph) {
+        dijkstra.setGraph(graph);
+        this.graph = graph;
+        reverse = null;
+        landmarks = null;
+        hierarchyQuery = null;
+        int n = graph.vertexCount();
+        if (forwardHeap != null && forwardHeap.capacity() < n) {
+            forwardHeap = null; // Allocated again by the next query
+        }
+        if (backwardHeap != null && backwardHeap.capacity() < n) {
+            backwardHeap = null;
+        }
+        if (potentials != null && potentials.length < n) {
+            potentials = null;
+        }
+        lastMode = null;
+        source = -1;
+        target = -1;
+        meeting = -1;
+    }
+
+    public RoutingMode mode() {
+        return mode;
+    }
+
+    public void setMode(RoutingMode mode) {
+        this.mode = mode;
+    }
+
+    // Changing the landmark count drops the precomputed landmarks
+    public void setLandmarkCount(int landmarkCount) {
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException("At least one landmark is required");
+        }
+        if (landmarkCount != this.landmarkCount) {
+            this.landmarkCount = landmarkCount;
+            landmarks = null;
+        }
+    }
+
+    // Returns the weighted distance from source to target, or -1 if unreachable
+    public long distance(int source, int target) {
+        lastMode = mode;
+        this.source = source;
+        this.target = target;
+
+        switch (mode) {
+            case BIDIRECTIONAL:
+                return bidirectional(source, target);
+            case ALT:
+                return aStar(source, target);
+            case CONTRACTION_HIERARCHY:
+                long hierarchyDistance = hierarchyQuery().distance(source, target);
+                settledCount = hierarchyQuery.settledCount();
+                relaxedCount = hierarchyQuery.relaxedCount();
+                return hierarchyDistance;
+            default:
+                long distance = dijkstra.distance(source, target);
+                settledCount = dijkstra.settledCount();
+                relaxedCount = dijkstra.relaxedCount();
+                return distance;
+        }
+    }
+
+    // Number of vertices settled by the last query, over both search directions
+    public int settledCount() {
+        return settledCount;
+    }
+
+    // Number of edges relaxed by the last query, over both search directions
+    public long relaxedCount() {
+        return relaxedCount;
+    }
+
+    // Vertices on the route found by the last query, from source to target
+    public int[] route() {
+        if (lastMode == RoutingMode.DIJKSTRA) {
+            return dijkstra.route();
+        }
+        if (lastMode == RoutingMode.CONTRACTION_HIERARCHY) {
+            return hierarchyQuery.route();
+        }
+        if (meeting == -1) {
+            return new int[0];
+        }
+
+        int length = 1;
+        for (int v = meeting; v != source; v = forwardParents[v]) {
+            length++;
+        }
+        int prefix = length;
+        for (int v = meeting; v != target; v = backwardParents[v]) {
+            length++;
+        }
+
+        int[] route = new int[length];
+        for (int v = meeting, i = prefix - 1; i >= 0; v = forwardParents[v], i--) {
+            route[i] = v;
+        }
+        for (int v = meeting, i = prefix; i < length; i++) {
+            v = backwardParents[v];
+            route[i] = v;
+        }
+        return route;
+    }
+
+    // Uses a hierarchy built (or loaded) elsewhere for CONTRACTION_HIERARCHY queries
+    public void setContractionHierarchy(ContractionHierarchy hierarchy) {
+        if (hierarchy.vertexCount() != graph.vertexCount()) {
+            throw new IllegalArgumentException("Hierarchy was built for a different graph");
+        }
+        if (hierarchyQuery == null) {
+            hierarchyQuery = new ContractionHierarchyQuery(hierarchy);
+        } else if (hierarchyQuery.hierarchy() != hierarchy) {
+            hierarchyQuery.setHierarchy(hierarchy);
+        }
+    }
+
+    private ContractionHierarchyQuery hierarchyQuery() {
+        if (hierarchyQuery == null) {
+            hierarchyQuery = new ContractionHierarchyQuery(ContractionHierarchy.build(graph));
+        }
+        return hierarchyQuery;
+    }
+
+    public Landmarks landmarks() {
+        if (landmarks == null) {
+            landmarks = Landmarks.select(graph, reverseGraph(), landmarkCount);
+        }
+        return landmarks;
+    }
+
+    private CsrGraph reverseGraph() {
+        if (reverse == null) {
+            reverse = graph.reverse();
+        }
+        return reverse;
+    }
+
+    private long bidirectional(int source, int target) {
+        startQuery();
+        CsrGraph backward = reverseGraph();
+        if (backwardHeap == null) {
+            int n = graph.vertexCount();
+            backwardHeap = new IntMinHeap(n);
+            backwardDistances = new long[n];
+            backwardParents = new int[n];
+            backwardStamps = new int[n];
+        }
+        backwardHeap.clear();
+
+        reach(forwardHeap, forwardDistances, forwardParents, forwardStamps, source, 0, source);
+        reach(backwardHeap, backwardDistances, backwardParents, backwardStamps, target, 0, target);
+        long best = Long.MAX_VALUE;
+        if (source == target) {
+            best = 0;
+            meeting = source;
+        }
+
+        while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+            long forwardTop = forwardHeap.peekKey();
+            long backwardTop = backwardHeap.peekKey();
+            // No path through unsettled vertices can beat the best meeting found so far
+            if (forwardTop + backwardTop >= best) {
+                break;
+            }
+
+            boolean forwardStep = forwardTop <= backwardTop;
+            CsrGraph side = forwardStep ? graph : backward;
+            IntMinHeap heap = forwardStep ? forwardHeap : backwardHeap;
+            long[] distances = forwardStep ? forwardDistances : backwardDistances;
+            int[] parents = forwardStep ? forwardParents : backwardParents;
+            int[] stamps = forwardStep ? forwardStamps : backwardStamps;
+            long[] otherDistances = forwardStep ? backwardDistances : forwardDistances;
+            int[] otherStamps = forwardStep ? backwardStamps : forwardStamps;
+
+            int current = heap.poll();
+            settledCount++;
+            long base = distances[current];
+            relaxedCount += side.degree(current);
+
+            for (int e = side.begin(current), last = side.end(current); e < last; e++) {
+                int neighbor = side.target(e);
+                long candidate = base + side.weight(e);
+                if (stamps[neighbor] == epoch && candidate >= distances[neighbor]) {
+                    continue;
+                }
+                reach(heap, distances, parents, stamps, neighbor, candidate, current);
+
+                if (otherStamps[neighbor] == epoch && candidate + otherDistances[neighbor] < best) {
+                    best = candidate + otherDistances[neighbor];
+                    meeting = neighbor;
+                }
+            }
+        }
+
+        return best == Long.MAX_VALUE ? -1 : best;
+    }
+
+    private long aStar(int source, int target) {
+        Landmarks bounds = landmarks();
+        startQuery();
+        if (potentials == null) {
+            potentials = new long[graph.vertexCount()];
+        }
+        bounds.setTarget(target);
+
+        long sourceBound = bounds.lowerBound(source);
+        if (sourceBound == Landmarks.UNREACHABLE) {
+            return -1;
+        }
+        potentials[source] = sourceBound;
+        forwardStamps[source] = epoch;
+        forwardDistances[source] = 0;
+        forwardParents[source] = source;
+        forwardHeap.insertOrDecrease(source, sourceBound);
+
+        while (!forwardHeap.isEmpty()) {
+            int current = forwardHeap.poll();
+            settledCount++;
+
+            if (current == target) {
+                forwardHeap.clear();
+                meeting = target;
+                return forwardDistances[target];
+            }
+
+            long base = forwardDistances[current];
+            relaxedCount += graph.degree(current);
+            for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+                int neighbor = graph.target(e);
+                long candidate = base + graph.weight(e);
+                if (forwardStamps[neighbor] != epoch) {
+                    long bound = bounds.lowerBound(neighbor);
+                    if (bound == Landmarks.UNREACHABLE) {
+                        continue; // The target cannot be reached through this vertex
+                    }
+                    potentials[neighbor] = bound;
+                } else if (candidate >= forwardDistances[neighbor]) {
+                    continue;
+                }
+                forwardStamps[neighbor] = epoch;
+                forwardDistances[neighbor] = candidate;
+                forwardParents[neighbor] = current;
+                forwardHeap.insertOrDecrease(neighbor, candidate + potentials[neighbor]);
+            }
+        }
+
+        return -1;
+    }
+
+    private void startQuery() {
+        if (forwardHeap == null) {
+            int n = graph.vertexCount();
+            forwardHeap = new IntMinHeap(n);
+            forwardDistances = new long[n];
+            forwardParents = new int[n];
+            forwardStamps = new int[n];
+        }
+        if (++epoch == 0) {
+            Arrays.fill(forwardStamps, 0);
+            if (backwardStamps != null) {
+                Arrays.fill(backwardStamps, 0);
+            }
+            epoch = 1;
+        }
+        forwardHeap.clear();
+        meeting = -1;
+        settledCount = 0;
+        relaxedCount = 0;
+    }
+
+    private void reach(IntMinHeap heap, long[] distances, int[] parents, int[] stamps, int v, long distance, int parent) {
+        stamps[v] = epoch;
+        distances[v] = distance;
+        parents[v] = parent;
+        heap.insertOrDecrease(v, distance);
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Least-recently-used cache of query results keyed by (query kind, from, to),
+// bounded by an estimate of the memory its entries hold. Lookups of hot pairs
+// never touch the graph; the owner clears the cache whenever the graph changes.
+public class QueryCache {
+    public enum Kind {
+        DISTANCE,     // Long: weighted distance, -1 if unreachable
+        REACHABILITY, // Boolean
+        BFS_PATH      // PathResult
+    }
+
+    private static final long ENTRY_OVERHEAD = 96; // Map entry, key object and boxed value headers
+    private static final long STRING_REFERENCE = 8;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public QueryCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    // Cached result, or null on a miss
+    public Object get(Kind kind, int from, int to) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(new Key(kind, from, to));
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(Kind kind, int from, int to, Object value) {
+        long size = ENTRY_OVERHEAD + sizeOf(value);
+        if (size > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            Entry old = entries.put(new Key(kind, from, to), new Entry(value, size));
+            bytes += size - (old != null ? old.size : 0);
+
+            // Evict from the least recently used end until the bound holds again
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().size;
+                eldest.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Estimated memory held by the cached entries
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    // Share of lookups answered from the cache
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCache[" + size() + " entries, " + bytes() + "/" + maxBytes + " bytes, "
+                + hits() + " hits, " + misses() + " misses]";
+    }
+
+    // City names are shared with the graph, so a path only pays for its references and weights
+    private static long sizeOf(Object value) {
+        if (value instanceof PathResult) {
+            PathResult path = (PathResult) value;
+            return 64 + STRING_REFERENCE * path.cities().size() + 4L * path.hops();
+        }
+        return 0;
+    }
+
+    private static class Key {
+        private final Kind kind;
+        private final int from;
+        private final int to;
+
+        Key(Kind kind, int from, int to) {
+            this.kind = kind;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind && from == other.from && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return StringIntMap.mix(31 * (31 * kind.ordinal() + from) + to);
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long size;
+
+        Entry(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
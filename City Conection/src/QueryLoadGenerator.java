@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives a running QueryServer from several connections, each writing requests in
+// pipelined windows of depth lines and reading the answers back, and reports the
+// queries per second and the error answers. The mix is the cheap menu queries
+// (PATH, SHORTEST, NEIGHBORS, ADJACENT) between random cities named as by GraphGenerator.
+// Usage: java QueryLoadGenerator [port] [connections] [depth] [seconds] [cities]
+public class QueryLoadGenerator {
+    private static final String[] OPERATIONS = {"PATH", "SHORTEST", "NEIGHBORS", "ADJACENT"};
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int cities = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+
+        AtomicLong answered = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            int seed = c;
+            Thread thread = new Thread(() -> {
+                try {
+                    drive(port, depth, cities, deadline, new Random(seed), answered, errors);
+                } catch (IOException e) {
+                    System.out.println("Connection failed: " + e.getMessage());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d queries in %.1f s: %.0f queries/s, %d errors%n",
+                answered.get(), elapsed, answered.get() / elapsed, errors.get());
+    }
+
+    private static void drive(int port, int depth, int cities, long deadline, Random random,
+                              AtomicLong answered, AtomicLong errors) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[1 << 16];
+            StringBuilder window = new StringBuilder();
+
+            while (System.nanoTime() < deadline) {
+                window.setLength(0);
+                for (int i = 0; i < depth; i++) {
+                    String operation = OPERATIONS[random.nextInt(OPERATIONS.length)];
+                    window.append(operation).append(' ').append(GraphGenerator.vertexName(random.nextInt(cities)));
+                    if (!operation.equals("NEIGHBORS")) {
+                        window.append(' ').append(GraphGenerator.vertexName(random.nextInt(cities)));
+                    }
+                    window.append('\n');
+                }
+                out.write(window.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                // Count answer lines, and the ones starting with ERR, until the window is back
+                int lines = 0;
+                boolean lineStart = true;
+                while (lines < depth) {
+                    int count = in.read(buffer);
+                    if (count == -1) {
+                        throw new IOException("Server closed the connection");
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (lineStart && buffer[i] == 'E') {
+                            errors.incrementAndGet();
+                        }
+                        lineStart = buffer[i] == '\n';
+                        if (lineStart) {
+                            lines++;
+                        }
+                    }
+                }
+                answered.addAndGet(depth);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// MetricsRegistry that keeps a latency histogram and work counters per operation,
+// load throughput and the registered gauges, and publishes them as attributes of
+// one MBean named "<OPERATION>.<stat>", for example IS_THERE_A_PATH.p99Micros.
+// Recording is a few atomic adds into preallocated arrays and adders.
+public class QueryMetrics implements MetricsRegistry, DynamicMBean {
+    private static final String[] OPERATION_STATS = {
+        "count", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros", "settledPerQuery", "relaxedPerQuery"
+    };
+    private static final String[] LOAD_STATS = {"loads", "loadedEdges", "edgesPerSecond", "bytesPerSecond"};
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] settled = new LongAdder[latencies.length];
+    private final LongAdder[] relaxed = new LongAdder[latencies.length];
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadedEdges = new LongAdder();
+    private final LongAdder loadedBytes = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LinkedHashMap<String, DoubleSupplier> gauges = new LinkedHashMap<>();
+
+    public QueryMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            settled[i] = new LongAdder();
+            relaxed[i] = new LongAdder();
+        }
+    }
+
+    // Registers this MBean with the platform MBean server, where JConsole and other JMX clients find it
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("CityConection:type=QueryMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void recordQuery(Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordWork(Operation operation, long settledCount, long relaxedCount) {
+        settled[operation.ordinal()].add(settledCount);
+        relaxed[operation.ordinal()].add(relaxedCount);
+    }
+
+    @Override
+    public void recordLoad(long edges, long bytes, long nanos) {
+        loads.increment();
+        loadedEdges.add(edges);
+        loadedBytes.add(bytes);
+        loadNanos.add(nanos);
+    }
+
+    @Override
+    public synchronized void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public LatencyHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    // Mean vertices settled or visited per call
+    public double settledPerQuery(Operation operation) {
+        long count = latencies[operation.ordinal()].count();
+        return count == 0 ? 0 : (double) settled[operation.ordinal()].sum() / count;
+    }
+
+    public double relaxedPerQuery(Operation operation) {
+        long count = latencies[operation.ordinal()].count();
+        return count == 0 ? 0 : (double) relaxed[operation.ordinal()].sum() / count;
+    }
+
+    // Parse throughput over every load so far
+    public double edgesPerSecond() {
+        long nanos = loadNanos.sum();
+        return nanos == 0 ? 0 : loadedEdges.sum() * 1e9 / nanos;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            settled[i].reset();
+            relaxed[i].reset();
+        }
+        loads.reset();
+        loadedEdges.reset();
+        loadedBytes.reset();
+        loadNanos.reset();
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        int dot = attribute.indexOf('.');
+        if (dot != -1) {
+            String prefix = attribute.substring(0, dot);
+            String stat = attribute.substring(dot + 1);
+            if (prefix.equals("load")) {
+                return loadStat(stat);
+            }
+            for (Operation operation : Operation.values()) {
+                if (operation.name().equals(prefix)) {
+                    return operationStat(operation, stat);
+                }
+            }
+        }
+        DoubleSupplier gauge;
+        synchronized (this) {
+            gauge = gauges.get(attribute);
+        }
+        if (gauge == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return gauge.getAsDouble();
+    }
+
+    private Object operationStat(Operation operation, String stat) throws AttributeNotFoundException {
+        LatencyHistogram latency = latencies[operation.ordinal()];
+        return switch (stat) {
+            case "count" -> latency.count();
+            case "meanMicros" -> latency.mean() / 1e3;
+            case "p50Micros" -> latency.valueAtPercentile(50) / 1e3;
+            case "p99Micros" -> latency.valueAtPercentile(99) / 1e3;
+            case "p999Micros" -> latency.valueAtPercentile(99.9) / 1e3;
+            case "maxMicros" -> latency.max() / 1e3;
+            case "settledPerQuery" -> settledPerQuery(operation);
+            case "relaxedPerQuery" -> relaxedPerQuery(operation);
+            default -> throw new AttributeNotFoundException(operation + "." + stat);
+        };
+    }
+
+    private Object loadStat(String stat) throws AttributeNotFoundException {
+        long nanos = loadNanos.sum();
+        return switch (stat) {
+            case "loads" -> loads.sum();
+            case "loadedEdges" -> loadedEdges.sum();
+            case "edgesPerSecond" -> edgesPerSecond();
+            case "bytesPerSecond" -> nanos == 0 ? 0.0 : loadedBytes.sum() * 1e9 / nanos;
+            default -> throw new AttributeNotFoundException("load." + stat);
+        };
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Left out of the list, as the DynamicMBean contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("reset") && (params == null || params.length == 0)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            for (String stat : OPERATION_STATS) {
+                String type = stat.equals("count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(operation + "." + stat, type, stat + " of " + operation, true, false, false));
+            }
+        }
+        for (String stat : LOAD_STATS) {
+            String type = stat.startsWith("loaded") || stat.equals("loads") ? "long" : "double";
+            attributes.add(new MBeanAttributeInfo("load." + stat, type, stat + " of graph loads", true, false, false));
+        }
+        synchronized (this) {
+            for (String gauge : gauges.keySet()) {
+                attributes.add(new MBeanAttributeInfo(gauge, "double", gauge, true, false, false));
+            }
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears every histogram and counter",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "City query metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {reset}, null);
+    }
+}
@@ -0,0 +1,377 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the eleven menu queries over TCP with a line protocol. Each request is one
+// line: the menu number or its name, then the city names it needs, separated by
+// spaces. Each response is one line, "OK <result>" or "ERR <message>", and they
+// come back in request order:
+//
+//    1 PATH      A B    true or false
+//    2 BFS       A B    A -> B (3) -> C (2), or none
+//    3 DFS       A B    same as BFS
+//    4 SHORTEST  A B    weighted distance, -1 if unreachable
+//    5 SIMPLE    A B    number of simple paths, of at most 8 roads where there are cycles;
+//                       ">= n" if counting stopped at a million
+//    6 NEIGHBORS A      [B, C]
+//    7 HIGHEST          [A, B]
+//    8 DIRECTED         true or false
+//    9 ADJACENT  A B    true or false
+//   10 CYCLE     A      true or false
+//   11 COMPONENT A      number of cities reachable from A
+//
+// One event-loop thread does all socket I/O. Clients may pipeline: the lines that
+// arrive together on a connection are answered as one batch on a worker thread,
+// against the graph version current when the batch started, and written back
+// together. A connection has at most one batch in flight, which keeps its answers in
+// order, and is not read from while a full batch waits behind it or while its unsent
+// answers pile up.
+public class QueryServer implements Closeable {
+    private static final int READ_BUFFER = 1 << 16;  // Also the longest accepted request line
+    private static final int MAX_BATCH = 1024;        // Requests answered per batch
+    private static final int MAX_PENDING_OUTPUT = 1 << 20;
+    private static final int SIMPLE_PATH_MAX_LENGTH = 8; // Keeps one SIMPLE from holding a worker on cyclic graphs
+    private static final long SIMPLE_PATH_MAX_PATHS = 1_000_000L;
+    private static final String[] NAMES = {
+        "PATH", "BFS", "DFS", "SHORTEST", "SIMPLE", "NEIGHBORS", "HIGHEST", "DIRECTED", "ADJACENT", "CYCLE", "COMPONENT"
+    };
+    private static final int[] ARITY = {2, 2, 2, 2, 2, 1, 0, 0, 2, 1, 1};
+
+    private final City city;
+    private final MetricsRegistry metrics;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Answer> answers = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    // Listens on port of the loopback interface; 0 picks a free port, see port()
+    public QueryServer(City city, int port, int workerThreads, MetricsRegistry metrics) throws IOException {
+        this.city = city;
+        this.metrics = metrics;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "query-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    // Runs the event loop until close() is called, then closes every connection and the selector
+    public void run() throws IOException {
+        try {
+            loop();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            selector.close();
+        }
+    }
+
+    private void loop() throws IOException {
+        while (running) {
+            selector.select();
+            Answer answer;
+            while ((answer = answers.poll()) != null) {
+                answered(answer);
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isWritable()) {
+                            write(connection);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(connection);
+                        }
+                    }
+                } catch (IOException e) {
+                    closeQuietly(key);
+                }
+            }
+        }
+    }
+
+    // Stops the event loop, which closes the connections as run() returns
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        workers.shutdown();
+        server.close();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    // Splits what arrived into lines and starts a batch if none is in flight
+    private void read(Connection connection) throws IOException {
+        int count = connection.channel.read(connection.input);
+        if (count == -1) {
+            connection.inputClosed = true;
+            updateInterest(connection);
+            closeIfDone(connection);
+            return;
+        }
+
+        ByteBuffer input = connection.input;
+        input.flip();
+        int lineStart = input.position();
+        for (int i = input.position(); i < input.limit(); i++) {
+            if (input.get(i) == '\n') {
+                int end = i > lineStart && input.get(i - 1) == '\r' ? i - 1 : i;
+                connection.pending.add(new String(input.array(), lineStart, end - lineStart, StandardCharsets.UTF_8));
+                lineStart = i + 1;
+            }
+        }
+        input.position(lineStart);
+        input.compact();
+        if (!input.hasRemaining()) {
+            throw new IOException("Request line longer than " + READ_BUFFER + " bytes");
+        }
+        submitBatch(connection);
+        updateInterest(connection);
+    }
+
+    private void submitBatch(Connection connection) {
+        if (connection.busy || connection.pending.isEmpty()) {
+            return;
+        }
+        List<String> batch = new ArrayList<>(Math.min(connection.pending.size(), MAX_BATCH));
+        while (!connection.pending.isEmpty() && batch.size() < MAX_BATCH) {
+            batch.add(connection.pending.poll());
+        }
+        connection.busy = true;
+        workers.execute(() -> {
+            StringBuilder response = new StringBuilder(batch.size() * 16);
+            try {
+                GraphQueries queries = city.queries(); // One version for the whole batch
+                for (String request : batch) {
+                    answer(queries, request, response);
+                }
+            } finally {
+                // Always hand the connection back, or it would never be read from again
+                answers.add(new Answer(connection, ByteBuffer.wrap(response.toString().getBytes(StandardCharsets.UTF_8))));
+                selector.wakeup();
+            }
+        });
+    }
+
+    // Back on the event loop: queue the batch's answers and start the next batch
+    private void answered(Answer answer) {
+        Connection connection = answer.connection;
+        connection.busy = false;
+        if (!connection.key.isValid()) {
+            return;
+        }
+        connection.output.add(answer.bytes);
+        connection.outputBytes += answer.bytes.remaining();
+        try {
+            write(connection);
+        } catch (IOException e) {
+            closeQuietly(connection.key);
+            return;
+        }
+        submitBatch(connection);
+        updateInterest(connection);
+        closeIfDone(connection);
+    }
+
+    private void write(Connection connection) throws IOException {
+        while (!connection.output.isEmpty()) {
+            ByteBuffer bytes = connection.output.peek();
+            int written = connection.channel.write(bytes);
+            connection.outputBytes -= written;
+            if (bytes.hasRemaining()) {
+                break;
+            }
+            connection.output.poll();
+        }
+        updateInterest(connection);
+        closeIfDone(connection);
+    }
+
+    // Waits for the socket while answers are unsent, and stops reading while a full batch
+    // is already pending or too many answers are unsent
+    private static void updateInterest(Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (!connection.inputClosed && connection.pending.size() < MAX_BATCH
+                && connection.outputBytes <= MAX_PENDING_OUTPUT) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (!connection.output.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(ops);
+    }
+
+    // Closes a connection whose client has stopped sending once everything is answered
+    private void closeIfDone(Connection connection) {
+        if (connection.inputClosed && !connection.busy && connection.pending.isEmpty() && connection.output.isEmpty()) {
+            closeQuietly(connection.key);
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    // Appends the response line for one request
+    private void answer(GraphQueries queries, String request, StringBuilder response) {
+        String[] parts = request.trim().split(" +");
+        int operation = operation(parts[0]);
+        if (operation == -1 || parts.length != ARITY[operation] + 1) {
+            response.append("ERR Invalid request: ").append(request).append('\n');
+            return;
+        }
+
+        long start = System.nanoTime();
+        int lineStart = response.length();
+        try {
+            response.append("OK ");
+            execute(queries, operation, parts, response);
+        } catch (IllegalArgumentException e) {
+            response.setLength(lineStart);
+            response.append("ERR ").append(e.getMessage() != null ? e.getMessage() : e.toString());
+        } catch (RuntimeException e) {
+            response.setLength(lineStart); // Drop whatever the failed query appended
+            response.append("ERR Internal error: ").append(e);
+        }
+        response.append('\n');
+        metrics.recordQuery(MetricsRegistry.Operation.values()[operation], System.nanoTime() - start);
+    }
+
+    private static void execute(GraphQueries queries, int operation, String[] parts, StringBuilder response) {
+        switch (operation) {
+            case 0 -> response.append(queries.isThereAPath(parts[1], parts[2]).found());
+            case 1 -> appendPath(queries.bfsPath(parts[1], parts[2]), response);
+            case 2 -> appendPath(queries.dfsPath(parts[1], parts[2]), response);
+            case 3 -> {
+                PathResult path = queries.shortestPath(parts[1], parts[2]);
+                response.append(path.found() ? path.length() : -1);
+            }
+            case 4 -> {
+                PathCounter.Result result = queries.numberOfSimplePaths(parts[1], parts[2], SIMPLE_PATH_MAX_LENGTH, SIMPLE_PATH_MAX_PATHS);
+                response.append(result.isExact() ? "" : ">= ").append(result.count());
+            }
+            case 5 -> response.append(queries.neighbors(parts[1]));
+            case 6 -> response.append(queries.highestDegree());
+            case 7 -> response.append(queries.isDirected());
+            case 8 -> response.append(queries.areTheyAdjacent(parts[1], parts[2]));
+            case 9 -> response.append(queries.isThereACycle(parts[1]));
+            default -> response.append(queries.numberOfVerticesInComponent(parts[1]));
+        }
+    }
+
+    private static void appendPath(PathResult path, StringBuilder response) {
+        if (!path.found()) {
+            response.append("none");
+            return;
+        }
+        List<String> cities = path.cities();
+        response.append(cities.get(0));
+        for (int i = 0; i < path.hops(); i++) {
+            response.append(" -> ").append(cities.get(i + 1)).append(" (").append(path.weight(i)).append(')');
+        }
+    }
+
+    // Index of the operation given by menu number or name, or -1
+    private static int operation(String token) {
+        if (token.length() <= 2 && !token.isEmpty() && Character.isDigit(token.charAt(0))) {
+            try {
+                int number = Integer.parseInt(token);
+                return number >= 1 && number <= NAMES.length ? number - 1 : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        String name = token.toUpperCase(Locale.ROOT);
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Number of city names the operation given by menu number takes, or -1 if there is no such operation
+    static int arity(int menuNumber) {
+        return menuNumber >= 1 && menuNumber <= ARITY.length ? ARITY[menuNumber - 1] : -1;
+    }
+
+    // Connection state, owned by the event-loop thread
+    private static class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer input = ByteBuffer.allocate(READ_BUFFER);
+        private final ArrayDeque<String> pending = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        private long outputBytes;
+        private boolean busy; // A batch is on a worker
+        private boolean inputClosed;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    private static class Answer {
+        private final Connection connection;
+        private final ByteBuffer bytes;
+
+        Answer(Connection connection, ByteBuffer bytes) {
+            this.connection = connection;
+            this.bytes = bytes;
+        }
+    }
+}
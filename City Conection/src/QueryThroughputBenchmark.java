@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs a mixed isThereAPath / shortest path / neighbors workload against one shared
+// GraphQueries from 1, 2, 4 ... up to all cores and reports how throughput scales.
+// Usage: java QueryThroughputBenchmark [side] [queriesPerThread]
+public class QueryThroughputBenchmark {
+    public static void main(String[] args) throws Exception {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int queriesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        CsrGraph graph = GraphGenerator.grid(side, side, 10, 42);
+        String[] names = new String[graph.vertexCount()];
+        for (int v = 0; v < names.length; v++) {
+            names[v] = "C" + v;
+        }
+        GraphQueries queries = new GraphQueries(new FrozenGraph(names, graph, null));
+        System.out.println("Graph: " + graph.vertexCount() + " vertices, " + graph.edgeCount() + " edges, " + cores + " cores");
+
+        run(queries, names, 1, queriesPerThread); // Warm up
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+            double perSecond = run(queries, names, threads, queriesPerThread);
+            if (threads == 1) {
+                baseline = perSecond;
+            }
+            System.out.printf("%3d threads: %10.0f queries/s  (%.2fx)%n", threads, perSecond, perSecond / baseline);
+        }
+    }
+
+    private static double run(GraphQueries queries, String[] names, int threads, int queriesPerThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                results.add(pool.submit(() -> workload(queries, names, queriesPerThread, seed)));
+            }
+            long checksum = 0;
+            for (Future<Long> result : results) {
+                checksum += result.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (checksum == Long.MIN_VALUE) {
+                System.out.println(checksum); // Keeps the results observable
+            }
+            return (double) threads * queriesPerThread * 1e9 / elapsed;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long workload(GraphQueries queries, String[] names, int count, long seed) {
+        Random random = new Random(seed);
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            String from = names[random.nextInt(names.length)];
+            String to = names[random.nextInt(names.length)];
+            switch (i % 3) {
+                case 0 -> checksum += queries.isThereAPath(from, to).visitedCount();
+                case 1 -> checksum += queries.shortestPath(from, to).length();
+                default -> checksum += queries.neighbors(from).size();
+            }
+        }
+        return checksum;
+    }
+}
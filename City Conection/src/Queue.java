@@ -1,77 +0,0 @@
-import java.util.NoSuchElementException;
-
-public class Queue<T> {
-    private Node<T> head;
-    private Node<T> tail;
-    private int size;
-
-    private static class Node<T> {
-        T data;
-        Node<T> next;
-
-        Node(T data) {
-            this.data = data;
-            this.next = null;
-        }
-    }
-
-    public Queue() {
-        head = null;
-        tail = null;
-        size = 0;
-    }
-
-
-    public void add(T data) {
-        Node<T> newNode = new Node<>(data);
-        if (tail == null) {
-            head = tail = newNode;
-        } else {
-            tail.next = newNode;
-            tail = newNode;
-        }
-        size++;
-    }
-
-
-    public T remove() {
-        if (head == null) {
-            throw new NoSuchElementException("Queue is empty");
-        }
-        T data = head.data;
-        head = head.next;
-        if (head == null) {
-            tail = null;
-        }
-        size--;
-        return data;
-    }
-
-    public T peek() {
-        if (head == null) {
-            throw new NoSuchElementException("Queue is empty");
-        }
-        return head.data;
-    }
-
-    public T pop() {
-        if (head == null) {
-            return null;
-        }
-        T data = head.data;
-        head = head.next;
-        if (head == null) {
-            tail = null;
-        }
-        size--;
-        return data;
-    }
-
-    public boolean isEmpty() {
-        return size == 0;
-    }
-
-    public int size() {
-        return size;
-    }
-}
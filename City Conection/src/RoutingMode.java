@@ -0,0 +1,11 @@
+// Search strategy used for point-to-point shortest path queries
+public enum RoutingMode {
+    // One-directional Dijkstra from the source
+    DIJKSTRA,
+    // Dijkstra from both ends that stops when the two frontiers meet
+    BIDIRECTIONAL,
+    // A* guided by landmark distance lower bounds (ALT)
+    ALT,
+    // Bidirectional upward search over a precomputed ContractionHierarchy
+    CONTRACTION_HIERARCHY
+}
@@ -0,0 +1,195 @@
+import java.util.Arrays;
+
+// Dijkstra over a CsrGraph. Distance and parent arrays are sized once and reused:
+// an epoch stamp per vertex tells which entries belong to the current query,
+// so a query allocates nothing unless the route is requested. setGraph moves the
+// engine to another graph, keeping the arrays, which only grow.
+public class ShortestPathEngine {
+    private CsrGraph graph;
+    private IntMinHeap heap;
+    private long[] distances;
+    private int[] parentEdges; // Edge slot used to reach each vertex, -1 at the source
+    private int[] parents;
+    private int[] stamps;
+    private int[] targetStamps; // Marks the targets of the current distancesTo call
+    private int epoch;
+
+    private int source = -1;
+    private int target = -1;
+    private int settledCount;
+    private long relaxedCount;
+
+    public ShortestPathEngine(CsrGraph graph) {
+        setGraph(graph);
+    }
+
+    // Answers later queries on graph, such as a newer version of the current one
+    public void setGraph(CsrGraph graph) {
+        if (graph.hasNegativeWeight()) {
+            throw new IllegalArgumentException("Dijkstra requires non-negative edge weights");
+        }
+        int n = graph.vertexCount();
+        if (stamps == null || stamps.length < n) {
+            int capacity = stamps == null ? n : Math.max(n, stamps.length + (stamps.length >> 1));
+            heap = new IntMinHeap(capacity);
+            distances = new long[capacity];
+            parentEdges = new int[capacity];
+            parents = new int[capacity];
+            stamps = new int[capacity];
+            targetStamps = null;
+        }
+        this.graph = graph;
+        nextEpoch(); // Entries stamped for the old graph no longer count
+        source = -1;
+        target = -1;
+    }
+
+    public CsrGraph graph() {
+        return graph;
+    }
+
+    // Returns the weighted distance from source to target, or -1 if unreachable
+    public long distance(int source, int target) {
+        startQuery(source);
+        this.target = target;
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            settledCount++;
+
+            if (current == target) {
+                heap.clear();
+                return distances[target];
+            }
+            relaxEdges(current);
+        }
+
+        return -1;
+    }
+
+    // Fills out[v] with the distance from source to every vertex, or -1 if unreachable
+    public void distancesFrom(int source, long[] out) {
+        startQuery(source);
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            settledCount++;
+            relaxEdges(current);
+        }
+
+        for (int v = 0; v < out.length; v++) {
+            out[v] = reached(v) ? distances[v] : -1;
+        }
+    }
+
+    // Fills out[i] with the distance from source to targets[i], or -1 if unreachable.
+    // One search serves every target and stops as soon as the last one is settled.
+    public void distancesTo(int source, int[] targets, long[] out) {
+        if (targetStamps == null) {
+            targetStamps = new int[stamps.length];
+        }
+        startQuery(source);
+
+        int remaining = 0;
+        for (int target : targets) {
+            if (targetStamps[target] != epoch) {
+                targetStamps[target] = epoch;
+                remaining++;
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            settledCount++;
+            if (targetStamps[current] == epoch && --remaining == 0) {
+                break;
+            }
+            relaxEdges(current);
+        }
+        heap.clear();
+
+        // Reached targets are final: either the heap ran dry or every target was settled
+        for (int i = 0; i < targets.length; i++) {
+            out[i] = reached(targets[i]) ? distances[targets[i]] : -1;
+        }
+    }
+
+    // Number of vertices settled by the last query
+    public int settledCount() {
+        return settledCount;
+    }
+
+    // Number of edges relaxed by the last query
+    public long relaxedCount() {
+        return relaxedCount;
+    }
+
+    // Vertices on the route found by the last query, from source to target
+    public int[] route() {
+        if (target == -1 || !reached(target)) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int v = target; v != source; v = parents[v]) {
+            length++;
+        }
+        int[] route = new int[length];
+        for (int v = target, i = length - 1; i >= 0; v = parents[v], i--) {
+            route[i] = v;
+        }
+        return route;
+    }
+
+    // Edge slot used to enter vertex v on the last route, or -1 for the source
+    public int parentEdge(int v) {
+        return reached(v) ? parentEdges[v] : -1;
+    }
+
+    private boolean reached(int v) {
+        return stamps[v] == epoch;
+    }
+
+    private void startQuery(int source) {
+        nextEpoch();
+        heap.clear();
+        this.source = source;
+        target = -1;
+        settledCount = 0;
+        relaxedCount = 0;
+
+        stamps[source] = epoch;
+        distances[source] = 0;
+        parentEdges[source] = -1;
+        parents[source] = source;
+        heap.insertOrDecrease(source, 0);
+    }
+
+    private void nextEpoch() {
+        if (++epoch == 0) {
+            // Stamp overflow: forget every old stamp once per 2^32 queries
+            Arrays.fill(stamps, 0);
+            if (targetStamps != null) {
+                Arrays.fill(targetStamps, 0);
+            }
+            epoch = 1;
+        }
+    }
+
+    private void relaxEdges(int current) {
+        long base = distances[current];
+        relaxedCount += graph.degree(current);
+        for (int e = graph.begin(current), last = graph.end(current); e < last; e++) {
+            int neighbor = graph.target(e);
+            long candidate = base + graph.weight(e);
+            if (stamps[neighbor] != epoch) {
+                stamps[neighbor] = epoch;
+            } else if (candidate >= distances[neighbor]) {
+                continue;
+            }
+            distances[neighbor] = candidate;
+            parentEdges[neighbor] = e;
+            parents[neighbor] = current;
+            heap.insertOrDecrease(neighbor, candidate);
+        }
+    }
+}
@@ -1,26 +0,0 @@
-import java.util.ArrayList;
-import java.util.EmptyStackException;
-import java.util.List;
-
-public class Stack<T> {
-    private List<T> elements;
-
-    public Stack() {
-        elements = new ArrayList<>();
-    }
-
-    public void push(T element) {
-        elements.add(element);
-    }
-
-    public T pop() {
-        if (isEmpty()) {
-            throw new EmptyStackException();
-        }
-        return elements.remove(elements.size() - 1);
-    }
-
-    public boolean isEmpty() {
-        return elements.isEmpty();
-    }
-}
\ No newline at end of file
@@ -0,0 +1,200 @@
+import java.nio.charset.StandardCharsets;
+
+// Open addressing String -> int hash table that stores values unboxed
+public class StringIntMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    // A null key marks an empty slot
+    private String[] keys;
+    private int[] values;
+    private int[] hashes;
+    private int size;
+    private int mask;
+    private int threshold;
+    private final float loadFactor;
+
+    public StringIntMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public StringIntMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public StringIntMap(int expectedSize, float loadFactor) {
+        if (!(loadFactor > 0 && loadFactor < 1)) { // Also rejects NaN
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(expectedSize, loadFactor));
+    }
+
+    // Grows the table once so that expectedSize keys fit without further rehashing
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize, loadFactor);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    public void put(String key, int value) {
+        int hash = key.hashCode();
+        int slot = findSlot(key, hash);
+
+        if (keys[slot] == null) {
+            insert(slot, key, hash, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    // Returns the value already mapped to the key, or maps it to value and returns value
+    public int putIfAbsent(String key, int value) {
+        int hash = key.hashCode();
+        int slot = findSlot(key, hash);
+
+        if (keys[slot] != null) {
+            return values[slot];
+        }
+        insert(slot, key, hash, value);
+        return value;
+    }
+
+    public boolean containsKey(String key) {
+        return keys[findSlot(key, key.hashCode())] != null;
+    }
+
+    public int getOrDefault(String key, int defaultValue) {
+        int slot = findSlot(key, key.hashCode());
+        return keys[slot] != null ? values[slot] : defaultValue;
+    }
+
+    // Looks up a UTF-8 key given as bytes. ASCII keys need no String: for ASCII text
+    // the byte-wise hash below is exactly String.hashCode, so both lookups meet.
+    public int getOrDefault(byte[] bytes, int offset, int length, int defaultValue) {
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (bytes[i] < 0) {
+                return getOrDefault(new String(bytes, offset, length, StandardCharsets.UTF_8), defaultValue);
+            }
+            hash = 31 * hash + bytes[i];
+        }
+
+        int slot = mix(hash) & mask;
+        String current;
+        while ((current = keys[slot]) != null) {
+            if (hashes[slot] == hash && equalsAscii(current, bytes, offset, length)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public void remove(String key) {
+        int slot = findSlot(key, key.hashCode());
+
+        if (keys[slot] != null) {
+            deleteSlot(slot);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+
+    private int findSlot(String key, int hash) {
+        int slot = mix(hash) & mask;
+        String current;
+        // Comparing cached hashes first avoids most String.equals calls on collisions
+        while ((current = keys[slot]) != null && (hashes[slot] != hash || !current.equals(key))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static boolean equalsAscii(String key, byte[] bytes, int offset, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int slot, String key, int hash, int value) {
+        keys[slot] = key;
+        hashes[slot] = hash;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != null) {
+            int home = mix(hashes[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                hashes[gap] = hashes[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = null;
+        size--;
+    }
+
+    private void rehash(int newCapacity) {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    // Spreads poor hash codes (e.g. small Integers) across the table
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int tableSizeFor(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) loadFactor) + 1;
+        int capacity = 2;
+        while (capacity < needed) {
+            if (capacity >= 1 << 30) {
+                throw new IllegalStateException("Map capacity exceeded");
+            }
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
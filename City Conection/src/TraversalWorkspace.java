@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+// Per-thread scratch space for graph traversals. Visited marks are epoch stamps,
+// so starting a new traversal is O(1) instead of clearing a V-sized array; the
+// arrays only grow, and are shared by every graph the thread queries.
+public class TraversalWorkspace {
+    private static final ThreadLocal<TraversalWorkspace> POOL = ThreadLocal.withInitial(TraversalWorkspace::new);
+
+    private int[] stamps = new int[0];
+    private int[] parents = new int[0]; // Only meaningful for vertices visited in this epoch
+    private int epoch;
+    private final IntQueue queue = new IntQueue();
+    private final IntStack vertices = new IntStack();
+    private final IntStack cursors = new IntStack();
+
+    private TraversalWorkspace() {
+    }
+
+    // Returns this thread's workspace, reset for a traversal over vertexCount vertices
+    public static TraversalWorkspace acquire(int vertexCount) {
+        TraversalWorkspace workspace = POOL.get();
+        workspace.reset(vertexCount);
+        return workspace;
+    }
+
+    private void reset(int vertexCount) {
+        if (stamps.length < vertexCount) {
+            int capacity = Math.max(vertexCount, stamps.length + (stamps.length >> 1));
+            stamps = new int[capacity];
+            parents = new int[capacity];
+            epoch = 0;
+        }
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        queue.clear();
+        vertices.clear();
+        cursors.clear();
+    }
+
+    public boolean isVisited(int v) {
+        return stamps[v] == epoch;
+    }
+
+    // Marks v visited; returns false if it already was
+    public boolean visit(int v) {
+        if (stamps[v] == epoch) {
+            return false;
+        }
+        stamps[v] = epoch;
+        return true;
+    }
+
+    public int parent(int v) {
+        return parents[v];
+    }
+
+    public void setParent(int v, int parent) {
+        parents[v] = parent;
+    }
+
+    public IntQueue queue() {
+        return queue;
+    }
+
+    // DFS frames: the vertex stack and, in step with it, each frame's next edge slot
+    public IntStack vertices() {
+        return vertices;
+    }
+
+    public IntStack cursors() {
+        return cursors;
+    }
+}
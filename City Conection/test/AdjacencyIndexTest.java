@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// AdjacencyIndex against scans of the graph it was built from, and City's adjacency
+// queries against scans of the current graph while roads and cities change. A hub
+// city with more roads than City scans per row sends areTheyAdjacent through the
+// index, including the stretch after an update where the index is stale.
+public class AdjacencyIndexTest {
+    public static void main(String[] args) {
+        for (int seed = 0; seed < 20; seed++) {
+            randomGraph(seed, seed % 2 == 0);
+            cityUpdates(seed);
+        }
+        System.out.println("ok");
+    }
+
+    // Parallel edges and self-loops included; symmetric graphs add every edge both ways
+    private static void randomGraph(long seed, boolean symmetric) {
+        Random random = new Random(seed);
+        int n = 1 + random.nextInt(40);
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(n);
+        for (int i = random.nextInt(4 * n); i > 0; i--) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            builder.addEdge(from, to, random.nextInt(100));
+            if (symmetric) {
+                builder.addEdge(to, from, random.nextInt(100));
+            }
+        }
+        CsrGraph graph = builder.build();
+        AdjacencyIndex index = AdjacencyIndex.build(graph);
+        String message = "seed " + seed;
+
+        Checks.check(index.graph() == graph, message + " graph");
+        Checks.checkEquals(isSymmetric(graph), index.isSymmetric(), message + " symmetric");
+        if (symmetric) {
+            Checks.check(index.isSymmetric(), message + " symmetric by construction");
+        }
+        for (int v = 0; v < n; v++) {
+            int[] sources = sources(graph, v);
+            Checks.check(Arrays.equals(sources, index.predecessors(v)), message + " predecessors of " + v);
+            Checks.checkEquals(sources.length, index.in().degree(v), message + " in-degree of " + v);
+            for (int u = 0; u < n; u++) {
+                int e = graph.findEdge(u, v);
+                Checks.checkEquals(e != -1, index.hasEdge(u, v), message + " edge " + u + " -> " + v);
+                Checks.checkEquals(e != -1 ? graph.weight(e) : -1, index.edgeWeight(u, v),
+                        message + " weight " + u + " -> " + v);
+            }
+        }
+    }
+
+    private static void cityUpdates(long seed) {
+        Random random = new Random(seed);
+        City city = new City();
+        int names = 30;
+        for (int i = 1; i < names; i++) {
+            city.addEdge("C0", "C" + i, i); // C0 is the hub
+            city.addEdge("C" + i, "C0", i);
+        }
+        for (int i = 0; i < 80; i++) {
+            city.addEdge("C0", "C" + random.nextInt(names), 1);
+        }
+
+        for (int op = 0; op < 300; op++) {
+            FrozenGraph frozen = city.frozenGraph();
+            String a = random.nextInt(3) == 0 ? "C0" : "C" + random.nextInt(names);
+            String b = "C" + random.nextInt(names);
+            switch (random.nextInt(10)) {
+                case 0 -> city.addCity("C" + names++);
+                case 1 -> {
+                    if (frozen.indexOf(b) != -1 && !b.equals("C0")) {
+                        city.removeCity(b);
+                    }
+                }
+                case 2, 3 -> {
+                    if (frozen.indexOf(a) != -1 && frozen.indexOf(b) != -1) {
+                        city.removeEdge(a, b);
+                    }
+                }
+                default -> city.addEdge(a, b, random.nextInt(10));
+            }
+            if (op % 10 == 0) {
+                checkCity(city, "city seed " + seed + " op " + op);
+            } else {
+                checkHub(city, random, "city seed " + seed + " op " + op);
+            }
+        }
+    }
+
+    // A few lookups from the hub only, so stale scans build up between full checks
+    private static void checkHub(City city, Random random, String message) {
+        FrozenGraph frozen = city.frozenGraph();
+        CsrGraph graph = frozen.graph();
+        for (int i = 0; i < 3; i++) {
+            int v = random.nextInt(graph.vertexCount());
+            if (frozen.name(v) != null) {
+                Checks.checkEquals(graph.findEdge(0, v) != -1, city.areTheyAdjacent("C0", frozen.name(v)),
+                        message + " adjacent C0, " + frozen.name(v));
+            }
+        }
+    }
+
+    private static void checkCity(City city, String message) {
+        FrozenGraph frozen = city.frozenGraph();
+        CsrGraph graph = frozen.graph();
+        Checks.checkEquals(!isSymmetric(graph), city.isDirected(), message + " directed");
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            String name = frozen.name(v);
+            if (name == null) {
+                continue;
+            }
+            int[] sources = sources(graph, v);
+            String[] expected = new String[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                expected[i] = frozen.name(sources[i]);
+            }
+            Checks.check(Arrays.equals(expected, city.predecessors(name)), message + " predecessors of " + name);
+            for (int u = 0; u < graph.vertexCount(); u++) {
+                if (frozen.name(u) != null) {
+                    Checks.checkEquals(graph.findEdge(u, v) != -1, city.areTheyAdjacent(frozen.name(u), name),
+                            message + " adjacent " + frozen.name(u) + ", " + name);
+                }
+            }
+        }
+    }
+
+    // Sources of the edges into v, one per edge, ascending
+    private static int[] sources(CsrGraph graph, int v) {
+        List<Integer> sources = new ArrayList<>();
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                if (graph.target(e) == v) {
+                    sources.add(u);
+                }
+            }
+        }
+        return sources.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean isSymmetric(CsrGraph graph) {
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                if (graph.findEdge(graph.target(e), u) == -1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
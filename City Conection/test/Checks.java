@@ -0,0 +1,39 @@
+import java.util.Objects;
+
+// Assertions for the test programs, which run without a test framework:
+//    javac -d out src/*.java test/*.java && java -cp out <Test>
+// Each test's main throws on the first failure and prints "ok" otherwise.
+public class Checks {
+    private Checks() {
+    }
+
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    // The route must run source -> target over edges of graph and weigh distance
+    public static void checkRoute(CsrGraph graph, int[] route, int source, int target, long distance, String message) {
+        checkEquals(source, route[0], message + " route start");
+        checkEquals(target, route[route.length - 1], message + " route end");
+        long length = 0;
+        for (int i = 0; i + 1 < route.length; i++) {
+            long lightest = Long.MAX_VALUE;
+            for (int e = graph.begin(route[i]); e < graph.end(route[i]); e++) {
+                if (graph.target(e) == route[i + 1]) {
+                    lightest = Math.min(lightest, graph.weight(e));
+                }
+            }
+            check(lightest != Long.MAX_VALUE, message + " route uses a missing edge " + route[i] + " -> " + route[i + 1]);
+            length += lightest;
+        }
+        checkEquals(distance, length, message + " route length");
+    }
+}
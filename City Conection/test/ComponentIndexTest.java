@@ -0,0 +1,124 @@
+import java.util.ArrayDeque;
+import java.util.Random;
+
+// ComponentIndex against breadth-first search over the current graph, while a City
+// keeps the index up to date through random additions and removals of roads and
+// cities. The index is built once, early, so later answers come from its updates.
+public class ComponentIndexTest {
+    public static void main(String[] args) {
+        for (int seed = 0; seed < 20; seed++) {
+            randomUpdates(seed, seed % 2 == 0);
+        }
+        System.out.println("ok");
+    }
+
+    private static void randomUpdates(long seed, boolean symmetric) {
+        Random random = new Random(seed);
+        City city = new City();
+        for (int i = 0; i < 10; i++) {
+            city.addCity("C" + i);
+        }
+        ComponentIndex built = city.components();
+
+        int names = 10;
+        for (int round = 0; round < 30; round++) {
+            for (int op = 0; op < 15; op++) {
+                String a = "C" + random.nextInt(names);
+                String b = "C" + random.nextInt(names);
+                switch (random.nextInt(12)) {
+                    case 0 -> city.addCity("C" + names++);
+                    case 1 -> {
+                        if (city.frozenGraph().indexOf(a) != -1) {
+                            city.removeCity(a);
+                        }
+                    }
+                    case 2, 3 -> {
+                        if (city.frozenGraph().indexOf(a) != -1 && city.frozenGraph().indexOf(b) != -1) {
+                            city.removeEdge(a, b);
+                            if (symmetric) {
+                                city.removeEdge(b, a);
+                            }
+                        }
+                    }
+                    default -> {
+                        city.addEdge(a, b, 1);
+                        if (symmetric) {
+                            city.addEdge(b, a, 1);
+                        }
+                    }
+                }
+            }
+            Checks.check(city.components() == built, "index followed the updates");
+            checkMatches(city, "seed " + seed + " round " + round);
+        }
+    }
+
+    private static void checkMatches(City city, String message) {
+        FrozenGraph frozen = city.frozenGraph();
+        CsrGraph graph = frozen.graph();
+        ComponentIndex index = city.components();
+        int n = graph.vertexCount();
+        boolean[][] reaches = new boolean[n][];
+        boolean[][] connected = new boolean[n][];
+        for (int v = 0; v < n; v++) {
+            reaches[v] = search(graph, v, false);
+            connected[v] = search(graph, v, true);
+        }
+
+        for (int u = 0; u < n; u++) {
+            int weakSize = 0;
+            int strongSize = 0;
+            int reachableCount = 0;
+            boolean sink = true;
+            for (int v = 0; v < n; v++) {
+                boolean strong = reaches[u][v] && reaches[v][u];
+                String pair = message + " " + u + ", " + v;
+                Checks.checkEquals(connected[u][v], index.sameWeakComponent(u, v), pair + " same weak component");
+                Checks.checkEquals(strong, index.sameStrongComponent(u, v), pair + " same strong component");
+                Boolean reachable = index.reachable(u, v);
+                Checks.check(reachable == null || reachable == reaches[u][v], pair + " reachable");
+                weakSize += connected[u][v] ? 1 : 0;
+                strongSize += strong ? 1 : 0;
+                reachableCount += reaches[u][v] ? 1 : 0;
+                sink &= !reaches[u][v] || strong;
+            }
+            Checks.checkEquals(weakSize, index.weakComponentSize(u), message + " weak size of " + u);
+            Checks.checkEquals(strongSize, index.strongComponentSize(u), message + " strong size of " + u);
+            Checks.checkEquals(sink, index.isSinkComponent(u), message + " sink " + u);
+            int count = index.reachableCount(u);
+            Checks.check(count == -1 || count == reachableCount, message + " reachable count of " + u);
+            String name = frozen.name(u);
+            if (name != null) {
+                Checks.checkEquals(reachableCount, city.numberOfVerticesInComponent(name), message + " component of " + name);
+            }
+        }
+    }
+
+    // Vertices reachable from source, following edges in both directions when undirected is set
+    private static boolean[] search(CsrGraph graph, int source, boolean undirected) {
+        int n = graph.vertexCount();
+        boolean[] seen = new boolean[n];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        seen[source] = true;
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int u = 0; u < n; u++) {
+                if (!seen[u] && (hasEdge(graph, v, u) || undirected && hasEdge(graph, u, v))) {
+                    seen[u] = true;
+                    queue.add(u);
+                }
+            }
+        }
+        return seen;
+    }
+
+    private static boolean hasEdge(CsrGraph graph, int from, int to) {
+        for (int e = graph.begin(from); e < graph.end(from); e++) {
+            if (graph.target(e) == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+// Contraction hierarchy distances and unpacked routes against plain Dijkstra, on
+// generated graphs and on weights whose sums overflow an int, and the saved file
+public class ContractionHierarchyTest {
+    public static void main(String[] args) throws IOException {
+        matchesDijkstra(GraphGenerator.grid(30, 30, 100, 1), "grid");
+        matchesDijkstra(GraphGenerator.randomGeometric(1000, 6, 100, 2), "geometric");
+        matchesDijkstra(GraphGenerator.powerLaw(1000, 3, 100, 3), "power law");
+        matchesDijkstra(randomGraph(500, 1500, Integer.MAX_VALUE / 2, Integer.MAX_VALUE, 4), "large weights");
+        matchesDijkstra(randomGraph(300, 400, 1, 10, 5), "sparse directed");
+        savesAndLoads();
+        System.out.println("ok");
+    }
+
+    private static void matchesDijkstra(CsrGraph graph, String name) {
+        ContractionHierarchyQuery query = new ContractionHierarchyQuery(ContractionHierarchy.build(graph));
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        Random random = new Random(name.hashCode());
+        for (int i = 0; i < 500; i++) {
+            int source = random.nextInt(graph.vertexCount());
+            int target = random.nextInt(graph.vertexCount());
+            long expected = engine.distance(source, target);
+            String message = name + " " + source + " -> " + target;
+            Checks.checkEquals(expected, query.distance(source, target), message);
+            if (expected != -1) {
+                Checks.checkRoute(graph, query.route(), source, target, expected, message);
+            }
+        }
+    }
+
+    private static void checkRoute(CsrGraph graph, int[] route, int source, int target, long distance, String message) {
+        Checks.checkEquals(source, route[0], message + " route start");
+        Checks.checkEquals(target, route[route.length - 1], message + " route end");
+        long length = 0;
+        for (int i = 0; i + 1 < route.length; i++) {
+            long lightest = Long.MAX_VALUE;
+            for (int e = graph.begin(route[i]); e < graph.end(route[i]); e++) {
+                if (graph.target(e) == route[i + 1]) {
+                    lightest = Math.min(lightest, graph.weight(e));
+                }
+            }
+            Checks.check(lightest != Long.MAX_VALUE, message + " route uses a missing edge " + route[i] + " -> " + route[i + 1]);
+            length += lightest;
+        }
+        Checks.checkEquals(distance, length, message + " route length");
+    }
+
+    private static void savesAndLoads() throws IOException {
+        CsrGraph graph = randomGraph(400, 1600, Integer.MAX_VALUE / 2, Integer.MAX_VALUE, 6);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        File file = File.createTempFile("hierarchy", ".ch");
+        try {
+            hierarchy.save(file.getPath());
+            ContractionHierarchy loaded = ContractionHierarchy.load(file.getPath(), graph);
+            Checks.check(loaded != null && loaded.matches(graph), "hierarchy loads for its own graph");
+            Checks.checkEquals(hierarchy.shortcutCount(), loaded.shortcutCount(), "shortcut count");
+            ContractionHierarchyQuery built = new ContractionHierarchyQuery(hierarchy);
+            ContractionHierarchyQuery read = new ContractionHierarchyQuery(loaded);
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                Checks.checkEquals(built.distance(0, v), read.distance(0, v), "loaded distance 0 -> " + v);
+            }
+
+            CsrGraph other = randomGraph(400, 1600, 1, 10, 7);
+            Checks.check(ContractionHierarchy.load(file.getPath(), other) == null, "hierarchy of another graph is refused");
+            Checks.check(ContractionHierarchy.load(file.getPath() + ".missing", graph) == null, "missing file");
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static CsrGraph randomGraph(int vertexCount, int edgeCount, int minWeight, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder(edgeCount);
+        builder.ensureVertexCount(vertexCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int weight = minWeight + (int) (random.nextDouble() * ((long) maxWeight - minWeight));
+            builder.addEdge(random.nextInt(vertexCount), random.nextInt(vertexCount), weight);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+// DegreeIndex against degrees counted from scratch, both on its own under random
+// edge additions, removals and new vertices, and as City keeps it up to date
+// through addEdge, removeEdge and removeCity.
+public class DegreeIndexTest {
+    public static void main(String[] args) {
+        for (int seed = 0; seed < 20; seed++) {
+            randomUpdates(seed);
+            cityUpdates(seed);
+        }
+        System.out.println("ok");
+    }
+
+    private static void randomUpdates(long seed) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(5);
+        builder.addEdge(0, 1, 1);
+        builder.addEdge(0, 1, 1);
+        builder.addEdge(2, 0, 1);
+        DegreeIndex index = DegreeIndex.build(builder.build());
+        List<int[]> edges = new ArrayList<>(List.of(new int[] {0, 1}, new int[] {0, 1}, new int[] {2, 0}));
+        int n = 5;
+
+        for (int op = 0; op < 3000; op++) {
+            switch (random.nextInt(8)) {
+                case 0 -> index.extend(n += random.nextInt(3));
+                case 1, 2 -> {
+                    if (!edges.isEmpty()) {
+                        int[] edge = edges.get(random.nextInt(edges.size()));
+                        int count = (int) edges.stream().filter(e -> Arrays.equals(e, edge)).count();
+                        edges.removeIf(e -> Arrays.equals(e, edge));
+                        index.removeEdges(edge[0], edge[1], count);
+                    }
+                }
+                default -> {
+                    // Mostly among a few vertices, so some degrees grow large
+                    int from = random.nextInt(4) == 0 ? random.nextInt(n + 2) : random.nextInt(Math.min(n, 4));
+                    int to = random.nextInt(n + 2);
+                    index.addEdge(from, to);
+                    edges.add(new int[] {from, to});
+                    n = Math.max(n, Math.max(from, to) + 1);
+                }
+            }
+            if (op % 25 == 0) {
+                checkMatches(edges, n, index, "seed " + seed + " op " + op);
+            }
+        }
+        checkMatches(edges, n, index, "seed " + seed + " end");
+    }
+
+    private static void cityUpdates(long seed) {
+        Random random = new Random(seed);
+        City city = new City();
+        for (int i = 0; i < 20; i++) {
+            city.addCity("C" + i);
+        }
+        DegreeIndex built = city.degrees();
+        int names = 20;
+
+        for (int op = 0; op < 600; op++) {
+            String a = "C" + random.nextInt(names);
+            String b = "C" + random.nextInt(names);
+            FrozenGraph frozen = city.frozenGraph();
+            switch (random.nextInt(10)) {
+                case 0 -> city.addCity("C" + names++);
+                case 1 -> {
+                    if (frozen.indexOf(a) != -1) {
+                        city.removeCity(a);
+                    }
+                }
+                case 2, 3 -> {
+                    if (frozen.indexOf(a) != -1 && frozen.indexOf(b) != -1) {
+                        city.removeEdge(a, b);
+                    }
+                }
+                default -> city.addEdge(a, b, 1);
+            }
+            if (op % 20 == 0) {
+                CsrGraph graph = city.frozenGraph().graph();
+                List<int[]> edges = new ArrayList<>();
+                for (int v = 0; v < graph.vertexCount(); v++) {
+                    for (int e = graph.begin(v); e < graph.end(v); e++) {
+                        edges.add(new int[] {v, graph.target(e)});
+                    }
+                }
+                Checks.check(city.degrees() == built, "index followed the updates");
+                checkMatches(edges, graph.vertexCount(), built, "city seed " + seed + " op " + op);
+                checkTopCities(city, graph, "city seed " + seed + " op " + op);
+            }
+        }
+    }
+
+    private static void checkMatches(List<int[]> edges, int n, DegreeIndex index, String message) {
+        int[] outDegrees = new int[n];
+        int[] inDegrees = new int[n];
+        for (int[] edge : edges) {
+            outDegrees[edge[0]]++;
+            inDegrees[edge[1]]++;
+        }
+        Checks.checkEquals(n, index.vertexCount(), message + " vertex count");
+        for (int v = 0; v < n; v++) {
+            Checks.checkEquals(outDegrees[v], index.outDegree(v), message + " out-degree of " + v);
+            Checks.checkEquals(inDegrees[v], index.inDegree(v), message + " in-degree of " + v);
+        }
+        checkOrder(outDegrees, index.maxOutDegree(), index.withMaxOutDegree(), index.outDegreeDistribution(),
+                index::byOutDegree, message + " out");
+        checkOrder(inDegrees, index.maxInDegree(), index.withMaxInDegree(), index.inDegreeDistribution(),
+                index::byInDegree, message + " in");
+    }
+
+    private static void checkOrder(int[] degrees, int max, int[] withMax, int[] distribution,
+            IntUnaryOperator byDegree, String message) {
+        int n = degrees.length;
+        int expectedMax = Arrays.stream(degrees).max().orElse(0);
+        Checks.checkEquals(expectedMax, max, message + " max degree");
+        int[] expectedWithMax = n == 0 ? new int[0] : IntStream.range(0, n)
+                .filter(v -> degrees[v] == expectedMax).toArray();
+        Checks.check(Arrays.equals(expectedWithMax, withMax), message + " vertices of max degree "
+                + Arrays.toString(withMax));
+        int[] expectedDistribution = new int[expectedMax + 1];
+        for (int degree : degrees) {
+            expectedDistribution[degree]++;
+        }
+        Checks.check(Arrays.equals(expectedDistribution, distribution), message + " distribution "
+                + Arrays.toString(distribution));
+
+        // The ranks must list every vertex once, by descending degree
+        boolean[] seen = new boolean[n];
+        for (int rank = 0; rank < n; rank++) {
+            int v = byDegree.applyAsInt(rank);
+            Checks.check(!seen[v], message + " vertex " + v + " ranked twice");
+            seen[v] = true;
+            if (rank > 0) {
+                Checks.check(degrees[byDegree.applyAsInt(rank - 1)] >= degrees[v], message + " rank " + rank);
+            }
+        }
+    }
+
+    // topDegreeCities must return the live cities of the k highest out-degrees
+    private static void checkTopCities(City city, CsrGraph graph, String message) {
+        FrozenGraph frozen = city.frozenGraph();
+        List<Integer> live = new ArrayList<>();
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (frozen.name(v) != null) {
+                live.add(graph.degree(v));
+            }
+        }
+        live.sort((x, y) -> Integer.compare(y, x));
+        for (int k : new int[] {0, 1, 5, live.size() + 3}) {
+            List<String> top = city.topDegreeCities(k);
+            Checks.checkEquals(Math.min(k, live.size()), top.size(), message + " top " + k + " size");
+            for (int i = 0; i < top.size(); i++) {
+                Checks.checkEquals(live.get(i), graph.degree(frozen.indexOf(top.get(i))), message + " top " + k + " rank " + i);
+            }
+        }
+        List<String> highest = city.highestDegree();
+        for (String name : highest) {
+            Checks.checkEquals(live.get(0), graph.degree(frozen.indexOf(name)), message + " highest " + name);
+        }
+    }
+}
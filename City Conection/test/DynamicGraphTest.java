@@ -0,0 +1,137 @@
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// DynamicGraph against a list-of-rows model under random updates. Every published
+// version must match the model as of its publish, then and after later updates.
+public class DynamicGraphTest {
+    public static void main(String[] args) {
+        for (int seed = 0; seed < 10; seed++) {
+            randomUpdates(seed);
+        }
+        System.out.println("ok");
+    }
+
+    private static void randomUpdates(long seed) {
+        Random random = new Random(seed);
+        int initialVertices = 1 + random.nextInt(50);
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(initialVertices);
+        List<List<int[]>> model = new ArrayList<>();
+        for (int v = 0; v < initialVertices; v++) {
+            model.add(new ArrayList<>());
+        }
+        for (int i = random.nextInt(200); i > 0; i--) {
+            int from = random.nextInt(initialVertices);
+            int to = random.nextInt(initialVertices);
+            int weight = 1 + random.nextInt(9);
+            builder.addEdge(from, to, weight);
+            model.get(from).add(new int[] {to, weight});
+        }
+
+        DynamicGraph dynamic = new DynamicGraph(builder.build());
+        List<CsrGraph> versions = new ArrayList<>();
+        List<List<List<int[]>>> expected = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int n = model.size();
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            switch (random.nextInt(10)) {
+                case 0 -> {
+                    Checks.checkEquals(n, dynamic.addVertex(), "new vertex id");
+                    model.add(new ArrayList<>());
+                }
+                case 1, 2 -> {
+                    int removed = 0;
+                    for (int i = model.get(from).size() - 1; i >= 0; i--) {
+                        if (model.get(from).get(i)[0] == to) {
+                            model.get(from).remove(i);
+                            removed++;
+                        }
+                    }
+                    Checks.checkEquals(removed, dynamic.removeEdges(from, to), "removed " + from + " -> " + to);
+                }
+                case 3 -> {
+                    int weight = random.nextInt(100);
+                    int changed = 0;
+                    for (int[] edge : model.get(from)) {
+                        if (edge[0] == to) {
+                            edge[1] = weight;
+                            changed++;
+                        }
+                    }
+                    Checks.checkEquals(changed, dynamic.setWeight(from, to, weight), "reweighted " + from + " -> " + to);
+                }
+                case 4 -> {
+                    if (random.nextInt(20) == 0) {
+                        int[] targets = model.get(from).stream().mapToInt(edge -> edge[0]).sorted().toArray();
+                        int[] removed = dynamic.clearOutEdges(from);
+                        Arrays.sort(removed);
+                        Checks.check(Arrays.equals(targets, removed), "targets of " + from);
+                        model.get(from).clear();
+                    } else if (random.nextInt(20) == 0) {
+                        List<Integer> sources = new ArrayList<>();
+                        for (int u = 0; u < n; u++) {
+                            for (int[] edge : model.get(u)) {
+                                if (edge[0] == to) {
+                                    sources.add(u);
+                                }
+                            }
+                            model.get(u).removeIf(edge -> edge[0] == to);
+                        }
+                        int[] removed = dynamic.clearInEdges(to);
+                        Arrays.sort(removed);
+                        Checks.check(Arrays.equals(sources.stream().mapToInt(Integer::intValue).toArray(), removed),
+                                "sources of " + to);
+                    }
+                }
+                default -> {
+                    int weight = random.nextInt(100);
+                    dynamic.addEdge(from, to, weight);
+                    model.get(from).add(new int[] {to, weight});
+                }
+            }
+
+            if (random.nextInt(50) == 0) {
+                versions.add(dynamic.publish());
+                expected.add(copy(model));
+            }
+        }
+        versions.add(dynamic.publish());
+        expected.add(copy(model));
+
+        for (int i = 0; i < versions.size(); i++) {
+            checkMatches(expected.get(i), versions.get(i), "seed " + seed + " version " + i);
+        }
+        checkMatches(model, dynamic.current(), "seed " + seed + " current");
+    }
+
+    private static void checkMatches(List<List<int[]>> model, CsrGraph graph, String message) {
+        Checks.checkEquals(model.size(), graph.vertexCount(), message + " vertex count");
+        int edges = 0;
+        for (int v = 0; v < model.size(); v++) {
+            List<int[]> row = model.get(v);
+            Checks.checkEquals(row.size(), graph.degree(v), message + " degree of " + v);
+            for (int i = 0; i < row.size(); i++) {
+                int e = graph.begin(v) + i;
+                Checks.checkEquals(row.get(i)[0], graph.target(e), message + " target " + i + " of " + v);
+                Checks.checkEquals(row.get(i)[1], graph.weight(e), message + " weight " + i + " of " + v);
+            }
+            edges += row.size();
+        }
+        Checks.checkEquals(edges, graph.edgeCount(), message + " edge count");
+    }
+
+    private static List<List<int[]>> copy(List<List<int[]>> model) {
+        List<List<int[]>> copy = new ArrayList<>(model.size());
+        for (List<int[]> row : model) {
+            List<int[]> rowCopy = new ArrayList<>(row.size());
+            for (int[] edge : row) {
+                rowCopy.add(edge.clone());
+            }
+            copy.add(rowCopy);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// GraphParser against the lines it was generated from: names, edges and rejected
+// lines with their numbers, for LF and CRLF endings, a last line without a newline
+// and a line longer than the read buffer
+public class GraphParserTest {
+    private static final String[] INVALID = {
+        "", "A", "A -> ", "A -> B", "A -> B: x", "A -> B: -1", "A -> B: 1 -> C: 2", "A -> B: 99999999999", "A -> B: 1,C: 2"
+    };
+
+    public static void main(String[] args) throws IOException {
+        for (int seed = 0; seed < 20; seed++) {
+            parsesGeneratedFile(seed, 2000, 1, 6);
+        }
+        parsesGeneratedFile(100, 3, 400_000, 400_000); // Lines longer than the 4 MB read buffer
+        System.out.println("ok");
+    }
+
+    private static void parsesGeneratedFile(long seed, int lineCount, int minEdgesPerLine, int maxEdgesPerLine) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        List<String> expectedEdges = new ArrayList<>();
+        List<String> expectedInvalid = new ArrayList<>();
+        for (int line = 1; line <= lineCount; line++) {
+            if (random.nextInt(50) == 0) {
+                String invalid = INVALID[random.nextInt(INVALID.length)];
+                text.append(invalid);
+                expectedInvalid.add(line + ":" + invalid);
+            } else {
+                String from = name(random);
+                text.append(from).append(" -> ");
+                int edges = minEdgesPerLine + random.nextInt(maxEdgesPerLine - minEdgesPerLine + 1);
+                for (int i = 0; i < edges; i++) {
+                    String to = name(random);
+                    int weight = random.nextInt(1000);
+                    text.append(i == 0 ? "" : ", ").append(to).append(": ").append(weight);
+                    expectedEdges.add(from + " -> " + to + ": " + weight);
+                }
+            }
+            if (line < lineCount || random.nextBoolean()) {
+                text.append(random.nextBoolean() ? "\r\n" : "\n");
+            }
+        }
+
+        File file = File.createTempFile("parser", ".txt");
+        try {
+            Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+            Recorder recorder = new Recorder();
+            GraphParser parser = new GraphParser(recorder);
+            parser.parse(file.getPath());
+            String message = "seed " + seed;
+            Checks.checkEquals(lineCount, parser.lineCount(), message + " line count");
+            Checks.checkEquals(expectedEdges, recorder.edges, message + " edges");
+            Checks.checkEquals(expectedInvalid, recorder.invalid, message + " invalid lines");
+        } finally {
+            file.delete();
+        }
+    }
+
+    // Plain, spaced and non-ASCII names
+    private static String name(Random random) {
+        int id = random.nextInt(500);
+        switch (id % 3) {
+            case 0:
+                return "C" + id;
+            case 1:
+                return "NEW C" + id;
+            default:
+                return "S\u00C3O C" + id;
+        }
+    }
+
+    private static class Recorder implements GraphParser.Sink {
+        private final List<String> names = new ArrayList<>();
+        private final List<String> edges = new ArrayList<>();
+        private final List<String> invalid = new ArrayList<>();
+
+        @Override
+        public int vertex(byte[] buffer, int offset, int length) {
+            String name = new String(buffer, offset, length, StandardCharsets.UTF_8);
+            int id = names.indexOf(name);
+            if (id == -1) {
+                names.add(name);
+                id = names.size() - 1;
+            }
+            return id;
+        }
+
+        @Override
+        public void edge(int from, int to, int weight) {
+            edges.add(names.get(from) + " -> " + names.get(to) + ": " + weight);
+        }
+
+        @Override
+        public void invalidLine(int lineNumber, byte[] buffer, int offset, int length) {
+            invalid.add(lineNumber + ":" + new String(buffer, offset, length, StandardCharsets.UTF_8));
+        }
+    }
+}
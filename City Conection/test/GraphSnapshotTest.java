@@ -0,0 +1,99 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+// Writes a snapshot of an updated City and maps it back: names, removed cities, an
+// empty city name and every row must come back as they were, and a damaged file
+// must be refused
+public class GraphSnapshotTest {
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            City city = updatedCity();
+            city.writeSnapshot(file.getPath());
+            City loaded = City.fromSnapshot(file.getPath(), true);
+            checkSame(city.frozenGraph(), loaded.frozenGraph());
+            checkLoadedCityWorks(city, loaded);
+            checkDamageIsDetected(file);
+        } finally {
+            file.delete();
+        }
+        System.out.println("ok");
+    }
+
+    // A generated graph plus cities added and removed afterwards, so the graph is a
+    // paged DynamicGraph version with removed vertices, one of them in the middle
+    private static City updatedCity() {
+        Random random = new Random(1);
+        City city = new City();
+        for (int i = 0; i < 3000; i++) {
+            city.addEdge("C" + random.nextInt(1000), "C" + random.nextInt(1000), random.nextInt(100));
+        }
+        city.addEdge("", "C1", 7); // A city whose name is empty is not a removed city
+        city.addEdge("Z\u00DCRICH", "", 3);
+        for (int i = 0; i < 50; i++) {
+            city.removeCity("C" + (20 * i));
+        }
+        city.addEdge("C999", "C0", 1); // Brings back a removed name under a new id
+        return city;
+    }
+
+    private static void checkSame(FrozenGraph expected, FrozenGraph actual) {
+        Checks.checkEquals(expected.vertexCount(), actual.vertexCount(), "vertex count");
+        Checks.checkEquals(expected.graph().edgeCount(), actual.graph().edgeCount(), "edge count");
+        Checks.checkEquals(expected.graph().checksum(), actual.graph().checksum(), "graph checksum");
+        for (int v = 0; v < expected.vertexCount(); v++) {
+            Checks.checkEquals(expected.name(v), actual.name(v), "name of " + v);
+            Checks.checkEquals(expected.graph().degree(v), actual.graph().degree(v), "degree of " + v);
+            for (int i = 0; i < expected.graph().degree(v); i++) {
+                int e = expected.graph().begin(v) + i;
+                int f = actual.graph().begin(v) + i;
+                Checks.checkEquals(expected.graph().target(e), actual.graph().target(f), "target " + i + " of " + v);
+                Checks.checkEquals(expected.graph().weight(e), actual.graph().weight(f), "weight " + i + " of " + v);
+            }
+        }
+        int removed = 0;
+        for (int v = 0; v < actual.vertexCount(); v++) {
+            removed += actual.name(v) == null ? 1 : 0;
+        }
+        Checks.checkEquals(50, removed, "removed cities");
+        Checks.checkEquals(-1, actual.indexOf("C20"), "removed city");
+        Checks.checkEquals(expected.indexOf(""), actual.indexOf(""), "empty city name");
+        Checks.checkEquals(expected.indexOf("C0"), actual.indexOf("C0"), "re-added city");
+    }
+
+    private static void checkLoadedCityWorks(City city, City loaded) {
+        Checks.checkEquals(city.whatIsShortestPathLength("C1", "C999"), loaded.whatIsShortestPathLength("C1", "C999"), "distance");
+        Checks.check(loaded.areTheyAdjacent("", "C1"), "road from the empty-named city");
+        loaded.addEdge("NEW", "", 2);
+        Checks.checkEquals(9L, loaded.whatIsShortestPathLength("NEW", "C1"), "updated snapshot city");
+    }
+
+    private static void checkDamageIsDetected(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = raf.length() - 5; // A weight
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 1);
+        }
+        City.fromSnapshot(file.getPath()); // Opening alone does not read the body
+        try {
+            City.fromSnapshot(file.getPath(), true);
+            Checks.check(false, "checksum mismatch must be reported");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        try {
+            City.fromSnapshot(file.getPath());
+            Checks.check(false, "truncated snapshot must be refused");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
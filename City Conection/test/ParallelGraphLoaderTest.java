@@ -0,0 +1,115 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+// Loading on several threads must give exactly what a sequential load gives: the same
+// vertex ids and names, the same rows in the same order, and the same rejected lines.
+// The files span several 1 MB chunks, so chunk boundaries fall inside lines, between
+// '\r' and '\n', and at the last line, which has no newline.
+public class ParallelGraphLoaderTest {
+    public static void main(String[] args) throws IOException {
+        File first = generate(1, 6 << 20);
+        File second = generate(2, 3 << 20);
+        try {
+            String[] files = {first.getPath(), second.getPath()};
+            Load sequential = load(files, 1);
+            for (int threads : new int[] {2, 3, 4}) {
+                Load parallel = load(files, threads);
+                checkSame(sequential, parallel, threads + " threads");
+            }
+        } finally {
+            first.delete();
+            second.delete();
+        }
+        System.out.println("ok");
+    }
+
+    // Random lines of about size bytes over a shared pool of names. One line is padded so
+    // that its "\r\n" straddles the first chunk boundary at 1 MB.
+    private static File generate(long seed, int size) throws IOException {
+        Random random = new Random(seed);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size + 1024);
+        StringBuilder line = new StringBuilder();
+        int boundary = 1 << 20;
+        boolean padded = false;
+        while (bytes.size() < size) {
+            line.setLength(0);
+            if (!padded && bytes.size() >= boundary - 500) {
+                String edges = " -> C1: 1";
+                line.append("PAD").append("x".repeat(boundary - 1 - bytes.size() - 3 - edges.length())).append(edges).append("\r\n");
+                padded = true;
+            } else {
+                if (random.nextInt(500) == 0) {
+                    line.append("not a line -> x: y");
+                } else {
+                    line.append(name(random)).append(" -> ");
+                    for (int i = random.nextInt(8); i >= 0; i--) {
+                        line.append(name(random)).append(": ").append(random.nextInt(100));
+                        line.append(i > 0 ? ", " : "");
+                    }
+                }
+                line.append(random.nextBoolean() ? "\r\n" : "\n");
+            }
+            bytes.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] text = bytes.toByteArray();
+        int length = text.length - (text[text.length - 2] == '\r' ? 2 : 1); // No final newline
+        File file = File.createTempFile("loader", ".txt");
+        Files.write(file.toPath(), Arrays.copyOf(text, length));
+        return file;
+    }
+
+    private static String name(Random random) {
+        int id = random.nextInt(50_000);
+        return id % 7 == 0 ? "Z\u00DCRICH " + id : "C" + id;
+    }
+
+    // The second file is loaded on top of the first, as a City does when reading more files
+    private static Load load(String[] files, int threads) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        City city = new City();
+        System.setOut(new PrintStream(messages, true, StandardCharsets.UTF_8));
+        try {
+            for (String file : files) {
+                city.readGraphFromFile(file, threads);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return new Load(city.frozenGraph(), messages.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void checkSame(Load expected, Load actual, String message) {
+        Checks.check(!expected.messages.isEmpty(), "files must contain rejected lines");
+        Checks.checkEquals(expected.messages, actual.messages, message + " rejected lines");
+        FrozenGraph a = expected.graph;
+        FrozenGraph b = actual.graph;
+        Checks.checkEquals(a.vertexCount(), b.vertexCount(), message + " vertex count");
+        Checks.checkEquals(a.graph().edgeCount(), b.graph().edgeCount(), message + " edge count");
+        for (int v = 0; v < a.vertexCount(); v++) {
+            Checks.checkEquals(a.name(v), b.name(v), message + " name of " + v);
+            Checks.checkEquals(a.graph().degree(v), b.graph().degree(v), message + " degree of " + v);
+            for (int i = 0, ea = a.graph().begin(v), eb = b.graph().begin(v); i < a.graph().degree(v); i++, ea++, eb++) {
+                Checks.checkEquals(a.graph().target(ea), b.graph().target(eb), message + " target " + i + " of " + v);
+                Checks.checkEquals(a.graph().weight(ea), b.graph().weight(eb), message + " weight " + i + " of " + v);
+            }
+        }
+    }
+
+    private static class Load {
+        private final FrozenGraph graph;
+        private final String messages;
+
+        Load(FrozenGraph graph, String messages) {
+            this.graph = graph;
+            this.messages = messages;
+        }
+    }
+}
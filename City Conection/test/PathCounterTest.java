@@ -0,0 +1,134 @@
+import java.math.BigInteger;
+import java.util.Random;
+
+// PathCounter against brute-force enumeration, and the boundary of maxPaths: a count
+// of exactly maxPaths paths is exact, one more is not
+public class PathCounterTest {
+    public static void main(String[] args) {
+        exactAtMaxPaths();
+        matchesBruteForce();
+        countsBeyondLongInDag();
+        trivialPairs();
+        maxLengthBoundsCyclicPaths();
+        System.out.println("ok");
+    }
+
+    // Source 0 reaches target 1 through each of 2..k+1, with an edge back to 0 so the
+    // graph is cyclic and the paths are enumerated
+    private static void exactAtMaxPaths() {
+        int k = 5;
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(k + 2);
+        for (int v = 2; v < k + 2; v++) {
+            builder.addEdge(0, v, 1);
+            builder.addEdge(v, 1, 1);
+        }
+        builder.addEdge(2, 0, 1);
+        PathCounter counter = new PathCounter(builder.build());
+
+        PathCounter.Result below = counter.count(0, 1, Integer.MAX_VALUE, k - 1);
+        Checks.check(!below.isExact(), "more than maxPaths paths must not be exact");
+        Checks.checkEquals(BigInteger.valueOf(k - 1), below.count(), "count stopped at maxPaths");
+        Checks.check(!below.isAcyclic(), "graph is cyclic");
+
+        for (long maxPaths = k; maxPaths <= k + 1; maxPaths++) {
+            PathCounter.Result result = counter.count(0, 1, Integer.MAX_VALUE, maxPaths);
+            Checks.check(result.isExact(), "count with maxPaths " + maxPaths + " must be exact");
+            Checks.checkEquals(BigInteger.valueOf(k), result.count(), "count with maxPaths " + maxPaths);
+        }
+    }
+
+    private static void matchesBruteForce() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 500; trial++) {
+            int n = 2 + random.nextInt(7);
+            GraphBuilder builder = new GraphBuilder();
+            builder.ensureVertexCount(n);
+            for (int i = random.nextInt(3 * n); i > 0; i--) {
+                builder.addEdge(random.nextInt(n), random.nextInt(n), 1);
+            }
+            CsrGraph graph = builder.build();
+            PathCounter counter = new PathCounter(graph);
+            int source = random.nextInt(n);
+            int target = random.nextInt(n);
+            int maxLength = random.nextBoolean() ? n : 1 + random.nextInt(n);
+
+            long expected = countPaths(graph, source, target, maxLength, new boolean[n], 0);
+            String message = "trial " + trial;
+            PathCounter.Result exact = counter.count(source, target, maxLength, Math.max(expected, 1));
+            Checks.check(exact.isExact(), message + " must be exact at maxPaths = count");
+            Checks.checkEquals(BigInteger.valueOf(expected), exact.count(), message);
+
+            if (expected > 1) {
+                PathCounter.Result bounded = counter.count(source, target, maxLength, expected - 1);
+                if (bounded.isExact()) {
+                    Checks.checkEquals(BigInteger.valueOf(expected), bounded.count(), message + " exact below maxPaths");
+                } else {
+                    Checks.checkEquals(BigInteger.valueOf(expected - 1), bounded.count(), message + " stopped at maxPaths");
+                }
+            }
+        }
+    }
+
+    // A chain of 70 diamonds has 2^70 paths, counted by the DAG program however small maxPaths is
+    private static void countsBeyondLongInDag() {
+        int diamonds = 70;
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(3 * diamonds + 1);
+        for (int i = 0; i < diamonds; i++) {
+            int from = 3 * i;
+            builder.addEdge(from, from + 1, 1);
+            builder.addEdge(from, from + 2, 1);
+            builder.addEdge(from + 1, from + 3, 1);
+            builder.addEdge(from + 2, from + 3, 1);
+        }
+        PathCounter.Result result = new PathCounter(builder.build()).count(0, 3 * diamonds, Integer.MAX_VALUE, 1);
+        Checks.check(result.isExact() && result.isAcyclic(), "DAG count must be exact");
+        Checks.checkEquals(BigInteger.ONE.shiftLeft(diamonds), result.count(), "paths through the diamonds");
+    }
+
+    private static void trivialPairs() {
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(3);
+        builder.addEdge(0, 1, 1);
+        builder.addEdge(0, 1, 2); // Parallel edges are separate paths
+        builder.addEdge(1, 0, 1);
+        PathCounter counter = new PathCounter(builder.build());
+        Checks.checkEquals(BigInteger.ONE, counter.count(1, 1, 5, 10).count(), "only the empty path from a vertex to itself");
+        Checks.checkEquals(BigInteger.ZERO, counter.count(0, 2, 5, 10).count(), "no path to an isolated vertex");
+        Checks.checkEquals(BigInteger.TWO, counter.count(0, 1, 5, 10).count(), "parallel edges");
+    }
+
+    // On a cycle through source and target, the only paths longer than maxLength are cut off
+    private static void maxLengthBoundsCyclicPaths() {
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(4);
+        builder.addEdge(0, 3, 1); // Length 1
+        builder.addEdge(0, 1, 1); // Length 3 through 1 and 2
+        builder.addEdge(1, 2, 1);
+        builder.addEdge(2, 3, 1);
+        builder.addEdge(3, 0, 1);
+        PathCounter counter = new PathCounter(builder.build());
+        Checks.checkEquals(BigInteger.ONE, counter.count(0, 3, 2, 10).count(), "paths of at most 2 edges");
+        Checks.checkEquals(BigInteger.TWO, counter.count(0, 3, 3, 10).count(), "paths of at most 3 edges");
+    }
+
+    // Simple paths of at most maxLength edges, counting parallel edges separately
+    private static long countPaths(CsrGraph graph, int current, int target, int maxLength, boolean[] onPath, int length) {
+        if (current == target) {
+            return 1;
+        }
+        if (length == maxLength) {
+            return 0;
+        }
+        onPath[current] = true;
+        long count = 0;
+        for (int e = graph.begin(current); e < graph.end(current); e++) {
+            if (!onPath[graph.target(e)]) {
+                count += countPaths(graph, graph.target(e), target, maxLength, onPath, length + 1);
+            }
+        }
+        onPath[current] = false;
+        return count;
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.Random;
+
+// Every routing mode against plain Dijkstra: the same distance for random pairs,
+// unreachable ones included, and a route of that length
+public class PointToPointRouterTest {
+    public static void main(String[] args) {
+        matchesDijkstra(GraphGenerator.grid(25, 25, 100, 1), "grid");
+        matchesDijkstra(GraphGenerator.randomGeometric(800, 5, 100, 2), "geometric");
+        matchesDijkstra(GraphGenerator.powerLaw(800, 2, 100, 3), "power law");
+        matchesDijkstra(disconnected(4), "disconnected");
+        matchesDijkstra(randomGraph(400, 700, 0, 3, 5), "sparse directed with zero weights");
+        matchesDijkstra(randomGraph(400, 2000, Integer.MAX_VALUE / 2, Integer.MAX_VALUE, 6), "large weights");
+        followsNewGraph();
+        System.out.println("ok");
+    }
+
+    private static void matchesDijkstra(CsrGraph graph, String name) {
+        ShortestPathEngine dijkstra = new ShortestPathEngine(graph);
+        PointToPointRouter router = new PointToPointRouter(graph);
+        Random random = new Random(name.hashCode());
+        int unreachable = 0;
+        for (int landmarks : new int[] {1, 8}) {
+            router.setLandmarkCount(landmarks);
+            for (int i = 0; i < 300; i++) {
+                int source = random.nextInt(graph.vertexCount());
+                int target = random.nextInt(graph.vertexCount());
+                long expected = dijkstra.distance(source, target);
+                unreachable += expected == -1 ? 1 : 0;
+                for (RoutingMode mode : RoutingMode.values()) {
+                    router.setMode(mode);
+                    String message = name + " " + mode + " with " + landmarks + " landmarks, " + source + " -> " + target;
+                    Checks.checkEquals(expected, router.distance(source, target), message);
+                    if (expected != -1) {
+                        Checks.checkRoute(graph, router.route(), source, target, expected, message);
+                    } else {
+                        Checks.checkEquals(0, router.route().length, message + " route");
+                    }
+                }
+            }
+        }
+        if (name.equals("disconnected")) {
+            Checks.check(unreachable > 0, "disconnected graph must yield unreachable pairs");
+        }
+    }
+
+    // A router moved to another graph must not answer from the old graph's landmarks or reverse
+    private static void followsNewGraph() {
+        CsrGraph first = randomGraph(300, 1200, 1, 50, 7);
+        CsrGraph second = randomGraph(300, 1200, 1, 50, 8);
+        PointToPointRouter router = new PointToPointRouter(first);
+        ShortestPathEngine dijkstra = new ShortestPathEngine(second);
+        for (RoutingMode mode : RoutingMode.values()) {
+            router.setGraph(first);
+            router.setMode(mode);
+            router.distance(0, 1);
+            router.setGraph(second);
+            for (int v = 0; v < second.vertexCount(); v += 7) {
+                Checks.checkEquals(dijkstra.distance(0, v), router.distance(0, v), mode + " after setGraph, 0 -> " + v);
+            }
+        }
+    }
+
+    // Several random components with no edges between them
+    private static CsrGraph disconnected(int components) {
+        Random random = new Random(components);
+        int size = 100;
+        GraphBuilder builder = new GraphBuilder();
+        builder.ensureVertexCount(components * size);
+        for (int c = 0; c < components; c++) {
+            for (int i = 0; i < 3 * size; i++) {
+                builder.addEdge(c * size + random.nextInt(size), c * size + random.nextInt(size), 1 + random.nextInt(20));
+            }
+        }
+        return builder.build();
+    }
+
+    private static CsrGraph randomGraph(int vertexCount, int edgeCount, int minWeight, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        GraphBuilder builder = new GraphBuilder(edgeCount);
+        builder.ensureVertexCount(vertexCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int weight = minWeight + (int) (random.nextDouble() * ((long) maxWeight - minWeight));
+            builder.addEdge(random.nextInt(vertexCount), random.nextInt(vertexCount), weight);
+        }
+        return builder.build();
+    }
+}
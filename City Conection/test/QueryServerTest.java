@@ -0,0 +1,101 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// QueryServer over loopback: pipelined requests, more than one batch's worth, are
+// answered in order on each connection, malformed requests and unknown cities get
+// ERR lines, and close() closes the open connections and the listening socket.
+public class QueryServerTest {
+    private static final int CHAIN = 20; // C0 -> C1 -> ... -> C20, every road of weight 1
+
+    public static void main(String[] args) throws Exception {
+        City city = new City();
+        for (int i = 0; i < CHAIN; i++) {
+            city.addEdge("C" + i, "C" + (i + 1), 1);
+        }
+        city.addCity("Alone");
+
+        QueryServer server = new QueryServer(city, 0, 4, MetricsRegistry.NONE);
+        Thread loop = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "query-server");
+        loop.start();
+
+        try (Socket first = new Socket("127.0.0.1", server.port());
+                Socket second = new Socket("127.0.0.1", server.port());
+                Socket idle = new Socket("127.0.0.1", server.port())) {
+            for (Socket socket : new Socket[] {first, second, idle}) {
+                socket.setSoTimeout(10_000); // Fail rather than hang if an answer or the close never comes
+            }
+            pipelined(first, 3000, 0);
+            pipelined(second, 3000, 7);
+            pipelined(first, 10, 3); // The connection stays usable after a long pipeline
+
+            server.close();
+            loop.join(10_000);
+            Checks.check(!loop.isAlive(), "event loop stopped");
+            Checks.checkEquals(-1, idle.getInputStream().read(), "idle connection closed");
+            Checks.checkEquals(-1, first.getInputStream().read(), "connection closed");
+        }
+        try {
+            new Socket("127.0.0.1", server.port()).close();
+            throw new AssertionError("connected after close");
+        } catch (ConnectException expected) {
+            // The listening socket is closed
+        }
+        System.out.println("ok");
+    }
+
+    // Writes count requests in one go, then reads the answers and checks their order
+    private static void pipelined(Socket socket, int count, int offset) throws IOException {
+        List<String> expected = new ArrayList<>(count);
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int target = (i + offset) % (CHAIN + 1);
+            switch ((i + offset) % 7) {
+                case 0 -> {
+                    requests.append("bogus ").append(i).append('\n');
+                    expected.add("ERR Invalid request: bogus " + i);
+                }
+                case 1 -> {
+                    requests.append("SHORTEST C0 Nowhere\n");
+                    expected.add("ERR City not found: Nowhere");
+                }
+                case 2 -> {
+                    requests.append("NEIGHBORS\r\n"); // Missing its city
+                    expected.add("ERR Invalid request: NEIGHBORS");
+                }
+                case 3 -> {
+                    requests.append("4 C").append(target).append(" C0\n");
+                    expected.add("OK " + (target == 0 ? 0 : -1));
+                }
+                case 4 -> {
+                    requests.append("path C0 Alone\n");
+                    expected.add("OK false");
+                }
+                default -> {
+                    requests.append("SHORTEST  C0 C").append(target).append("\r\n");
+                    expected.add("OK " + target);
+                }
+            }
+        }
+        OutputStream output = socket.getOutputStream();
+        output.write(requests.toString().getBytes(StandardCharsets.UTF_8));
+        output.flush();
+
+        BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        for (int i = 0; i < count; i++) {
+            Checks.checkEquals(expected.get(i), input.readLine(), "answer " + i + " of " + count);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+// Dijkstra distances and routes against Floyd-Warshall, distances beyond the int
+// range through City, and the rejection of negative weights
+public class ShortestPathTest {
+    public static void main(String[] args) throws IOException {
+        matchesFloydWarshall();
+        returnsDistancesBeyondInt();
+        rejectsNegativeWeights();
+        System.out.println("ok");
+    }
+
+    private static void matchesFloydWarshall() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 200; trial++) {
+            int n = 1 + random.nextInt(40);
+            GraphBuilder builder = new GraphBuilder();
+            builder.ensureVertexCount(n);
+            long[][] expected = new long[n][n];
+            for (int u = 0; u < n; u++) {
+                Arrays.fill(expected[u], Long.MAX_VALUE);
+                expected[u][u] = 0;
+            }
+            for (int i = random.nextInt(3 * n); i > 0; i--) {
+                int from = random.nextInt(n);
+                int to = random.nextInt(n);
+                int weight = random.nextInt(20);
+                builder.addEdge(from, to, weight);
+                expected[from][to] = Math.min(expected[from][to], weight);
+            }
+            for (int k = 0; k < n; k++) {
+                for (int u = 0; u < n; u++) {
+                    for (int v = 0; v < n; v++) {
+                        if (expected[u][k] != Long.MAX_VALUE && expected[k][v] != Long.MAX_VALUE) {
+                            expected[u][v] = Math.min(expected[u][v], expected[u][k] + expected[k][v]);
+                        }
+                    }
+                }
+            }
+
+            CsrGraph graph = builder.build();
+            ShortestPathEngine engine = new ShortestPathEngine(graph);
+            for (int u = 0; u < n; u++) {
+                for (int v = 0; v < n; v++) {
+                    long distance = expected[u][v] == Long.MAX_VALUE ? -1 : expected[u][v];
+                    String message = "trial " + trial + " " + u + " -> " + v;
+                    Checks.checkEquals(distance, engine.distance(u, v), message);
+                    if (distance != -1) {
+                        Checks.checkRoute(graph, engine.route(), u, v, distance, message);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void returnsDistancesBeyondInt() {
+        City city = new City();
+        city.addEdge("A", "B", Integer.MAX_VALUE);
+        city.addEdge("B", "C", Integer.MAX_VALUE);
+        Checks.checkEquals(2L * Integer.MAX_VALUE, city.whatIsShortestPathLength("A", "C"), "distance over two maximal roads");
+        Checks.checkEquals(-1L, city.whatIsShortestPathLength("C", "A"), "no road back");
+    }
+
+    private static void rejectsNegativeWeights() throws IOException {
+        File file = File.createTempFile("negative", ".txt");
+        try {
+            Files.writeString(file.toPath(), "A -> B: -3\nB -> C: 4\n", StandardCharsets.UTF_8);
+            City city = new City();
+            city.readGraphFromFile(file.getPath());
+            Checks.checkEquals(4L, city.whatIsShortestPathLength("B", "C"), "valid line is loaded");
+            Checks.check(!city.areTheyAdjacent("A", "B"), "line with a negative weight is rejected");
+
+            city.addEdge("B", "D", -1);
+            Checks.check(!city.areTheyAdjacent("B", "D"), "addEdge rejects a negative weight");
+            Checks.checkEquals(0, city.changeEdgeWeight("B", "C", -5), "changeEdgeWeight rejects a negative weight");
+            Checks.checkEquals(4L, city.whatIsShortestPathLength("B", "C"), "weight is unchanged");
+        } finally {
+            file.delete();
+        }
+    }
+}
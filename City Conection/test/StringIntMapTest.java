@@ -0,0 +1,123 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+// StringIntMap against java.util.HashMap, and removal from the middle of
+// probe chains of keys that share a hash code
+public class StringIntMapTest {
+    public static void main(String[] args) {
+        stringIntMapMatchesHashMap();
+        stringIntMapRemovesFromCollisionChain();
+        stringIntMapLooksUpBytes();
+        stringIntMapGrowsPastExpectedSize();
+        stringIntMapSurvivesChurn();
+        stringIntMapRejectsBadLoadFactor();
+        System.out.println("ok");
+    }
+
+    private static void stringIntMapMatchesHashMap() {
+        Random random = new Random(1);
+        StringIntMap map = new StringIntMap();
+        HashMap<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            String key = "k" + random.nextInt(5000);
+            int operation = random.nextInt(4);
+            if (operation == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else if (operation == 1) {
+                Checks.checkEquals(expected.putIfAbsent(key, i) == null ? i : expected.get(key), map.putIfAbsent(key, i), "putIfAbsent " + key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            Checks.checkEquals(expected.size(), map.size(), "size");
+        }
+        for (int k = 0; k < 5000; k++) {
+            String key = "k" + k;
+            Checks.checkEquals(expected.containsKey(key), map.containsKey(key), "containsKey " + key);
+            Checks.checkEquals(expected.getOrDefault(key, -1), map.getOrDefault(key, -1), "get " + key);
+        }
+    }
+
+    // "Aa" and "BB" have the same hash code, so every concatenation of n of them does too
+    private static void stringIntMapRemovesFromCollisionChain() {
+        List<String> keys = collidingStrings(6);
+        for (int removed = 0; removed < keys.size(); removed++) {
+            StringIntMap map = new StringIntMap(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), i);
+            }
+            map.remove(keys.get(removed));
+            Checks.checkEquals(keys.size() - 1, map.size(), "size after removing " + removed);
+            for (int i = 0; i < keys.size(); i++) {
+                Checks.checkEquals(i == removed ? -1 : i, map.getOrDefault(keys.get(i), -1), "key " + i + " after removing " + removed);
+            }
+        }
+    }
+
+    private static void stringIntMapLooksUpBytes() {
+        StringIntMap map = new StringIntMap();
+        map.put("LONDON", 1);
+        map.put("Z\u00DCRICH", 2);
+        byte[] bytes = "x LONDON Z\u00DCRICH PARIS".getBytes(StandardCharsets.UTF_8);
+        Checks.checkEquals(1, map.getOrDefault(bytes, 2, 6, -1), "ASCII key");
+        Checks.checkEquals(2, map.getOrDefault(bytes, 9, 7, -1), "UTF-8 key");
+        Checks.checkEquals(-1, map.getOrDefault(bytes, 17, 5, -1), "missing key");
+    }
+
+    private static void stringIntMapGrowsPastExpectedSize() {
+        StringIntMap map = new StringIntMap(4);
+        for (int i = 0; i < 1_000_000; i++) {
+            map.put("c" + i, i);
+            if (i == 1000) {
+                map.ensureCapacity(500_000); // Must keep the entries it rehashes
+            }
+        }
+        Checks.checkEquals(1_000_000, map.size(), "size");
+        for (int i = 0; i < 1_000_000; i++) {
+            Checks.checkEquals(i, map.getOrDefault("c" + i, -1), "key c" + i);
+        }
+    }
+
+    // Deletion leaves no tombstones, so removing everything and filling again must not
+    // lengthen probe chains or lose keys
+    private static void stringIntMapSurvivesChurn() {
+        StringIntMap map = new StringIntMap(1000);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 1000; i++) {
+                map.put("r" + round + "k" + i, i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                Checks.checkEquals(i, map.getOrDefault("r" + round + "k" + i, -1), "round " + round + " key " + i);
+                map.remove("r" + round + "k" + i);
+            }
+            Checks.checkEquals(0, map.size(), "size after round " + round);
+        }
+    }
+
+    private static void stringIntMapRejectsBadLoadFactor() {
+        for (float loadFactor : new float[] {0f, 1f, -0.5f, Float.NaN}) {
+            try {
+                new StringIntMap(16, loadFactor);
+                Checks.check(false, "load factor " + loadFactor + " must be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static List<String> collidingStrings(int pairs) {
+        List<String> keys = new ArrayList<>();
+        for (int bits = 0; bits < 1 << pairs; bits++) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < pairs; i++) {
+                key.append((bits >>> i & 1) == 0 ? "Aa" : "BB");
+            }
+            keys.add(key.toString());
+        }
+        return keys;
+    }
+}